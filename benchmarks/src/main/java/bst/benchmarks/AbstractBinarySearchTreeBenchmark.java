@@ -0,0 +1,245 @@
+package bst.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bst.BinarySearchTree;
+import bst.FrozenBinarySearchTree;
+import bst.TreeMetrics;
+
+/**
+ * Benchmarks BinarySearchTree on trees of 10^3 to 10^7 Integer keys;
+ * subclasses choose the key distributions and balance modes measured.
+ * The tree holds the even keys 0 .. 2( size - 1 ), built in the order
+ * the key distribution gives; lookups of odd keys miss. Keys are boxed
+ * once during setup, so allocation reported by the GC profiler comes
+ * from the tree itself.
+ * Per-operation benchmarks draw keys from a precomputed stream; insert
+ * and each subclass's remove time building and emptying a whole tree,
+ * once per call.
+ * Forks run with the JVM's default heap; give the 10^7-key runs more
+ * from the command line, e.g. -jvmArgsAppend "-Xms8g -Xmx8g".
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public abstract class AbstractBinarySearchTreeBenchmark
+{
+    @Param( { "1000", "10000", "100000", "1000000", "10000000" } )
+    public int size;
+
+    /**
+     * Return the order the tree is built in and the keys operated on.
+     */
+    protected abstract KeyDistribution keys( );
+
+    /**
+     * Return how the tree is kept balanced.
+     */
+    protected abstract BinarySearchTree.BalanceMode mode( );
+
+    @Setup( Level.Trial )
+    public void setUp( )
+    {
+        KeyDistribution keys = keys( );
+        Random random = new Random( SEED );
+
+        present = new Integer[ size ];
+        absent  = new Integer[ size ];
+        for( int i = 0; i < size; i++ )
+        {
+            present[ i ] = 2 * i;
+            absent[ i ]  = 2 * i + 1;
+        }
+
+        order = keys.insertionOrder( size, random );
+        tree = build( );
+        twin = build( );
+        twin.setMetrics( new TreeMetrics( ) );
+        frozen = tree.freeze( );
+
+        int [ ] stream = keys.operations( size, STREAM_LENGTH, random );
+        hits   = new Integer[ STREAM_LENGTH ];
+        misses = new Integer[ STREAM_LENGTH ];
+        for( int i = 0; i < STREAM_LENGTH; i++ )
+        {
+            hits[ i ]   = present[ stream[ i ] ];
+            misses[ i ] = absent[ stream[ i ] ];
+        }
+    }
+
+    @Benchmark
+    public boolean contains( )
+    {
+        return tree.contains( hits[ next++ & STREAM_MASK ] );
+    }
+
+    @Benchmark
+    public boolean containsMiss( )
+    {
+        return tree.contains( misses[ next++ & STREAM_MASK ] );
+    }
+
+        // The same lookups with a TreeMetrics attached, against contains for its overhead
+    @Benchmark
+    public boolean containsWithMetrics( )
+    {
+        return twin.contains( hits[ next++ & STREAM_MASK ] );
+    }
+
+    @Benchmark
+    public boolean frozenContains( )
+    {
+        return frozen.contains( hits[ next++ & STREAM_MASK ] );
+    }
+
+    @Benchmark
+    public boolean frozenContainsMiss( )
+    {
+        return frozen.contains( misses[ next++ & STREAM_MASK ] );
+    }
+
+    @Benchmark
+    public Integer findMin( )
+    {
+        return tree.findMin( );
+    }
+
+    @Benchmark
+    public Integer findMax( )
+    {
+        return tree.findMax( );
+    }
+
+        // Insert an absent key and remove it again, so the tree keeps its size
+    @Benchmark
+    public BinarySearchTree<Integer> insertThenRemove( )
+    {
+        Integer x = misses[ next++ & STREAM_MASK ];
+        tree.insert( x );
+        tree.remove( x );
+        return tree;
+    }
+
+    @Benchmark
+    @BenchmarkMode( Mode.SingleShotTime )
+    @OutputTimeUnit( TimeUnit.MILLISECONDS )
+    @Warmup( iterations = 3 )
+    @Measurement( iterations = 5 )
+    public BinarySearchTree<Integer> insert( )
+    {
+        return build( );
+    }
+
+
+    @Benchmark
+    public BinarySearchTree<Integer> copy( )
+    {
+        return tree.copy( );
+    }
+
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.MICROSECONDS )
+    public BinarySearchTree<Integer> mirror( )
+    {
+        return tree.mirror( );
+    }
+
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.MICROSECONDS )
+    public boolean equals( )
+    {
+        return tree.equals( twin );
+    }
+
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.MICROSECONDS )
+    public void printLevels( DiscardedOutput out )
+    {
+        tree.printLevels( );
+    }
+
+    /**
+     * Sends System.out nowhere while printLevels runs, so the benchmark
+     * times building the output rather than a terminal or log file.
+     */
+    @State( Scope.Thread )
+    public static class DiscardedOutput
+    {
+        private PrintStream original;
+
+        @Setup( Level.Trial )
+        public void setUp( )
+        {
+            original = System.out;
+            System.setOut( new PrintStream( OutputStream.nullOutputStream( ) ) );
+        }
+
+        @TearDown( Level.Trial )
+        public void tearDown( )
+        {
+            System.setOut( original );
+        }
+    }
+
+    /**
+     * Build a tree of the keys in the order the distribution gives.
+     */
+    BinarySearchTree<Integer> build( )
+    {
+        BinarySearchTree<Integer> t = new BinarySearchTree<>( mode( ) );
+        for( int i : order )
+            t.insert( present[ i ] );
+        return t;
+    }
+
+    /**
+     * Remove every key from a tree made by build, in the order it was built.
+     * Each subclass times this as remove, with its own FullTree state:
+     * JMH cannot hand an abstract benchmark to a helper state.
+     */
+    BinarySearchTree<Integer> removeAll( BinarySearchTree<Integer> t )
+    {
+        for( int i : order )
+            t.remove( present[ i ] );
+        return t;
+    }
+
+    private static final long SEED = 37;
+    private static final int STREAM_LENGTH = 1 << 20;
+    private static final int STREAM_MASK = STREAM_LENGTH - 1;
+
+      /** present[ i ] is the key 2i, held by the tree; absent[ i ] is 2i + 1. */
+    private Integer [ ] present;
+    private Integer [ ] absent;
+      /** The order in which keys are inserted, as indexes into present. */
+    private int [ ] order;
+      /** The operation streams: keys that hit and keys that miss. */
+    private Integer [ ] hits;
+    private Integer [ ] misses;
+    private int next;
+
+    private BinarySearchTree<Integer> tree;
+      /** Built the same way as tree, so equal to it but sharing no nodes; records metrics. */
+    private BinarySearchTree<Integer> twin;
+    private FrozenBinarySearchTree<Integer> frozen;
+}
@@ -0,0 +1,23 @@
+package bst.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH command line, adding the GC profiler
+ * so that every result also reports allocation rate and GC counts.
+ */
+public class BenchmarkMain
+{
+    public static void main( String [ ] args ) throws Exception
+    {
+        Options options = new OptionsBuilder( )
+                .parent( new CommandLineOptions( args ) )
+                .addProfiler( GCProfiler.class )
+                .build( );
+        new Runner( options ).run( );
+    }
+}
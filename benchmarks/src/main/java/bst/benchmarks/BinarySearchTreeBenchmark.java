@@ -0,0 +1,67 @@
+package bst.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bst.BinarySearchTree;
+
+/**
+ * Benchmarks the balanced modes of BinarySearchTree under every key
+ * distribution.
+ */
+public class BinarySearchTreeBenchmark extends AbstractBinarySearchTreeBenchmark
+{
+    @Param( { "RANDOM", "SORTED", "ZIPFIAN" } )
+    public KeyDistribution keys;
+
+    @Param( { "AVL", "SCAPEGOAT", "SPLAY" } )
+    public BinarySearchTree.BalanceMode mode;
+
+    @Override
+    protected KeyDistribution keys( )
+    {
+        return keys;
+    }
+
+    @Override
+    protected BinarySearchTree.BalanceMode mode( )
+    {
+        return mode;
+    }
+
+    @Benchmark
+    @BenchmarkMode( Mode.SingleShotTime )
+    @OutputTimeUnit( TimeUnit.MILLISECONDS )
+    @Warmup( iterations = 3 )
+    @Measurement( iterations = 5 )
+    public BinarySearchTree<Integer> remove( FullTree full )
+    {
+        return removeAll( full.tree );
+    }
+
+    /**
+     * A freshly built tree for each call, for benchmarks that empty it.
+     */
+    @State( Scope.Thread )
+    public static class FullTree
+    {
+        BinarySearchTree<Integer> tree;
+
+        @Setup( Level.Invocation )
+        public void setUp( BinarySearchTreeBenchmark benchmark )
+        {
+            tree = benchmark.build( );
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package bst.benchmarks;
+
+import java.util.Random;
+
+import org.apache.commons.math3.distribution.ZipfDistribution;
+import org.apache.commons.math3.random.Well19937c;
+
+/**
+ * The order in which a benchmark builds a tree and the keys it then
+ * operates on, as indexes into the n keys held by the tree.
+ */
+public enum KeyDistribution
+{
+      /** Built in random order; operations pick keys uniformly. */
+    RANDOM,
+      /** Built in ascending order; operations sweep the keys in ascending order. */
+    SORTED,
+      /** Built in random order; operations pick keys with Zipf's law, exponent 0.99. */
+    ZIPFIAN;
+
+    /**
+     * Return the order in which to insert the n keys.
+     * @param n the number of keys.
+     * @param random the source of randomness.
+     * @return a permutation of 0 .. n - 1.
+     */
+    public int [ ] insertionOrder( int n, Random random )
+    {
+        int [ ] order = new int[ n ];
+        for( int i = 0; i < n; i++ )
+            order[ i ] = i;
+        if( this != SORTED )
+            shuffle( order, random );
+        return order;
+    }
+
+    /**
+     * Return a stream of keys for the operations to use.
+     * @param n the number of keys.
+     * @param length the length of the stream.
+     * @param random the source of randomness.
+     * @return length indexes in 0 .. n - 1.
+     */
+    public int [ ] operations( int n, int length, Random random )
+    {
+        int [ ] stream = new int[ length ];
+        switch( this )
+        {
+          case RANDOM:
+            for( int i = 0; i < length; i++ )
+                stream[ i ] = random.nextInt( n );
+            break;
+
+          case SORTED:
+            for( int i = 0; i < length; i++ )
+                stream[ i ] = i % n;
+            break;
+
+          case ZIPFIAN:
+                // Popular ranks are scattered over the key space, not clustered at its low end
+            int [ ] byRank = insertionOrder( n, random );
+            ZipfDistribution zipf = new ZipfDistribution( new Well19937c( random.nextLong( ) ), n, ZIPF_EXPONENT );
+            for( int i = 0; i < length; i++ )
+                stream[ i ] = byRank[ zipf.sample( ) - 1 ];
+            break;
+        }
+        return stream;
+    }
+
+    private static void shuffle( int [ ] a, Random random )
+    {
+        for( int i = a.length - 1; i > 0; i-- )
+        {
+            int j = random.nextInt( i + 1 );
+            int tmp = a[ i ];
+            a[ i ] = a[ j ];
+            a[ j ] = tmp;
+        }
+    }
+
+    private static final double ZIPF_EXPONENT = 0.99;
+}
@@ -0,0 +1,66 @@
+package bst.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bst.BinarySearchTree;
+
+/**
+ * Benchmarks BinarySearchTree in BalanceMode.NONE, the default, so the
+ * plain path every existing caller runs is measured too. SORTED is left
+ * out: built in ascending order, the tree is a path, and building one
+ * takes quadratic time.
+ */
+public class UnbalancedBinarySearchTreeBenchmark extends AbstractBinarySearchTreeBenchmark
+{
+    @Param( { "RANDOM", "ZIPFIAN" } )
+    public KeyDistribution keys;
+
+    @Override
+    protected KeyDistribution keys( )
+    {
+        return keys;
+    }
+
+    @Override
+    protected BinarySearchTree.BalanceMode mode( )
+    {
+        return BinarySearchTree.BalanceMode.NONE;
+    }
+
+    @Benchmark
+    @BenchmarkMode( Mode.SingleShotTime )
+    @OutputTimeUnit( TimeUnit.MILLISECONDS )
+    @Warmup( iterations = 3 )
+    @Measurement( iterations = 5 )
+    public BinarySearchTree<Integer> remove( FullTree full )
+    {
+        return removeAll( full.tree );
+    }
+
+    /**
+     * A freshly built tree for each call, for benchmarks that empty it.
+     */
+    @State( Scope.Thread )
+    public static class FullTree
+    {
+        BinarySearchTree<Integer> tree;
+
+        @Setup( Level.Invocation )
+        public void setUp( UnbalancedBinarySearchTreeBenchmark benchmark )
+        {
+            tree = benchmark.build( );
+        }
+    }
+}
@@ -0,0 +1,3695 @@
+package bst;
+
+// BinarySearchTree class
+//
+// CONSTRUCTION: with no initializer, or with a BalanceMode and
+//     optionally as a multiset that counts duplicates;
+//     or bulk-loaded with fromSorted or fromUnsorted; or with join
+//
+// ******************PUBLIC OPERATIONS*********************
+// void insert( x )       --> Insert x
+// void remove( x )       --> Remove x
+// Comparable pollFirst( ) --> Remove and return smallest item; also pollLast( )
+// boolean contains( x )  --> Return true if x is present; splays it in SPLAY mode
+// Comparable findMin( )  --> Return smallest item
+// Comparable findMax( )  --> Return largest item
+// boolean isEmpty( )     --> Return true if empty; else false
+// int nodeCount( )       --> Return number of items, in constant time
+// int count( x )         --> Return number of occurrences of x
+// long totalCount( )     --> Return number of occurrences of all items
+// int height( )          --> Return height of the tree, in constant time
+// int insertAll( items ) --> Insert a batch; return number added
+// int removeAll( items ) --> Remove a batch; return number removed
+// BinarySearchTree snapshot( ) --> Return O(1) copy-on-write copy
+// List split( pivot )    --> Return trees of items < pivot and >= pivot
+// BinarySearchTree join( l, r ) --> Return tree of the items of l, then r
+// BinarySearchTree union( t ) --> Return tree of items in either; also intersection, difference
+// FrozenBinarySearchTree freeze( ) --> Return read-only copy laid out for search
+// void setMetrics( m )   --> Record compares, visits, rotations and latency in m
+// ShapeStats shapeStats( ) --> Return level counts, depths and shape flags
+// void makeEmpty( )      --> Remove all items
+// void printTree( )      --> Print tree in sorted order
+// Comparable select( k ) --> Return item with rank k (smallest is 0)
+// int rank( x )          --> Return number of items less than x
+// int countInRange( lo, hi ) --> Return number of items in [lo, hi]
+// Comparable floor( x )  --> Return largest item <= x; also lower( x ) for <
+// Comparable ceiling( x ) --> Return smallest item >= x; also higher( x ) for >
+// Iterator range( lo, hi ) --> Return lazy iterator over items in [lo, hi]
+// Iterator iterator( )   --> Return lazy in-order iterator
+// Stream stream( )       --> Return items in sorted order; also parallelStream( )
+// boolean rotateRight( x ) --> Rotate the node holding x; also rotateLeft( x ); not AVL or SCAPEGOAT
+// ******************ERRORS********************************
+// Throws UnderflowException as appropriate; IllegalStateException from a rotate that would unbalance the tree
+
+//importing array lists, the deques used as explicit stacks, the iteration and stream types, and the fork/join tasks
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+/**
+ * Implements a binary search tree that is unbalanced by default,
+ * or kept balanced when constructed with BalanceMode.AVL or
+ * BalanceMode.SCAPEGOAT, or self-adjusting with BalanceMode.SPLAY.
+ * A tree constructed as a multiset keeps duplicates as a count in the
+ * node of their item; iteration, rank, select and nodeCount still see
+ * each distinct item once.
+ * Note that all "matching" is based on the compareTo method.
+ * @author Mark Allen Weiss
+ */
+public class BinarySearchTree<AnyType extends Comparable<? super AnyType>> implements Iterable<AnyType>
+{
+    /**
+     * How the tree restructures itself on insert and remove.
+     */
+    public enum BalanceMode
+    {
+        NONE,       // Plain unbalanced tree
+        AVL,        // Heights of siblings differ by at most ALLOWED_IMBALANCE
+        SCAPEGOAT,  // No rotations; a subtree is rebuilt when an insert lands too deep
+        SPLAY       // Each insert, remove or contains rotates the node it reaches to the root
+    }
+
+    /**
+     * Construct the tree.
+     */
+    public BinarySearchTree( )
+    {
+        this( BalanceMode.NONE );
+    }
+
+    /**
+     * Construct the tree with the given balancing behavior.
+     * @param mode how insert and remove keep the tree balanced.
+     */
+    public BinarySearchTree( BalanceMode mode )
+    {
+        this( mode, false );
+    }
+
+    /**
+     * Construct the tree with the given balancing behavior, as a set
+     * or as a multiset. A multiset counts each insert of an item already
+     * present in that item's node, and each remove takes one occurrence
+     * away; a node is only allocated for the first occurrence of an item
+     * and only unlinked when its last occurrence is removed.
+     * @param mode how insert and remove keep the tree balanced.
+     * @param multiset true to count duplicates, false to ignore them.
+     */
+    public BinarySearchTree( BalanceMode mode, boolean multiset )
+    {
+        root = null;
+        this.mode = mode;
+        this.multiset = multiset;
+    }
+
+    /**
+     * Construct a minimum-height tree from items in strictly increasing order.
+     * Runs in linear time and makes no comparisons.
+     * @param items the items, sorted and without duplicates.
+     * @param mode how later inserts and removes keep the tree balanced.
+     * @return the new tree.
+     */
+    public static <AnyType extends Comparable<? super AnyType>>
+    BinarySearchTree<AnyType> fromSorted( AnyType [ ] items, BalanceMode mode )
+    {
+        return fromSorted( Arrays.asList( items ).iterator( ), items.length, mode );
+    }
+
+    /**
+     * Construct a minimum-height tree from items in strictly increasing order.
+     * Runs in linear time and makes no comparisons.
+     * @param items the items, sorted and without duplicates.
+     * @param mode how later inserts and removes keep the tree balanced.
+     * @return the new tree.
+     */
+    public static <AnyType extends Comparable<? super AnyType>>
+    BinarySearchTree<AnyType> fromSorted( List<? extends AnyType> items, BalanceMode mode )
+    {
+        return fromSorted( items.iterator( ), items.size( ), mode );
+    }
+
+    /**
+     * Construct a minimum-height tree from the next n items of an iterator,
+     * which must yield them in strictly increasing order. The items are
+     * consumed one at a time, without buffering them first.
+     * Runs in linear time and makes no comparisons.
+     * @param items the iterator, with at least n items remaining.
+     * @param n the number of items to take.
+     * @param mode how later inserts and removes keep the tree balanced.
+     * @return the new tree.
+     */
+    public static <AnyType extends Comparable<? super AnyType>>
+    BinarySearchTree<AnyType> fromSorted( Iterator<? extends AnyType> items, int n, BalanceMode mode )
+    {
+        BinarySearchTree<AnyType> tree = new BinarySearchTree<>( mode );
+        tree.root = buildInOrder( items, n, tree.owner );
+        tree.maxNodeCount = n;
+        return tree;
+    }
+
+    /**
+     * Construct a minimum-height tree from items in any order.
+     * Sorts a copy of the items and drops duplicates, then builds the
+     * tree as fromSorted does, for O(n log n) time in total.
+     * @param items the items to insert.
+     * @param mode how later inserts and removes keep the tree balanced.
+     * @return the new tree.
+     */
+    public static <AnyType extends Comparable<? super AnyType>>
+    BinarySearchTree<AnyType> fromUnsorted( Collection<? extends AnyType> items, BalanceMode mode )
+    {
+        List<AnyType> sorted = sortedDistinct( items );
+        return fromSorted( sorted.iterator( ), sorted.size( ), mode );
+    }
+
+    /**
+     * Internal method to sort a copy of some items and drop duplicates.
+     * @param items the items to sort.
+     * @return the distinct items in increasing order.
+     */
+    private static <AnyType extends Comparable<? super AnyType>>
+    List<AnyType> sortedDistinct( Collection<? extends AnyType> items )
+    {
+        ArrayList<AnyType> sorted = new ArrayList<>( items );
+        Collections.sort( sorted );
+
+        int distinct = 0;
+        for( AnyType x : sorted )
+            if( distinct == 0 || x.compareTo( sorted.get( distinct - 1 ) ) != 0 )
+                sorted.set( distinct++, x );
+        return sorted.subList( 0, distinct );
+    }
+
+    /**
+     * Insert into the tree; duplicates are ignored, unless the tree is
+     * a multiset, which counts them.
+     * @param x the item to insert.
+     */
+    public void insert( AnyType x )
+    {
+        TreeMetrics m = metrics;    // Read once, in case setMetrics runs meanwhile
+        long start = ( m != null ) ? startMeasuring( ) : 0;
+        try
+        {
+            root = insert( x, root );
+        }
+        finally
+        {
+            pathBuffer.clear( );
+            if( m != null )
+                measuring = false;
+        }
+        modCount++;
+        maxNodeCount = Math.max( maxNodeCount, nodeCount( ) );
+        if( m != null )
+            m.record( TreeMetrics.Operation.INSERT, opCompares, opVisits, opRotations, System.nanoTime( ) - start );
+    }
+
+    /**
+     * Remove from the tree. Nothing is done if x is not found.
+     * In a multiset, one occurrence of x is removed.
+     * @param x the item to remove.
+     */
+    public void remove( AnyType x )
+    {
+        TreeMetrics m = metrics;
+        long start = ( m != null ) ? startMeasuring( ) : 0;
+        try
+        {
+            root = ( mode == BalanceMode.SPLAY ) ? splayRemove( x ) : remove( x, root );
+        }
+        finally
+        {
+            pathBuffer.clear( );
+            if( m != null )
+                measuring = false;
+        }
+        modCount++;
+        rebuildIfShrunk( );
+        if( m != null )
+            m.record( TreeMetrics.Operation.REMOVE, opCompares, opVisits, opRotations, System.nanoTime( ) - start );
+    }
+
+    /**
+     * Remove the smallest item from the tree, so the tree can serve as
+     * a priority queue. In a multiset, one occurrence is removed.
+     * @return the item, or null if the tree is empty.
+     */
+    public AnyType pollFirst( )
+    {
+        return poll( true );
+    }
+
+    /**
+     * Remove the largest item from the tree.
+     * In a multiset, one occurrence is removed.
+     * @return the item, or null if the tree is empty.
+     */
+    public AnyType pollLast( )
+    {
+        return poll( false );
+    }
+
+    /**
+     * Insert a batch of items; duplicates are ignored.
+     * The batch is sorted and split at each node on the way down, so
+     * the path shared by several items is walked only once, and items
+     * that fall into the same empty subtree are linked in as a
+     * minimum-height subtree without further comparisons.
+     * A multiset inserts the items one at a time, counting every one.
+     * @param items the items to insert.
+     * @return the number of items that were not already present;
+     *         in a multiset, the number of items.
+     */
+    public int insertAll( Collection<? extends AnyType> items )
+    {
+        if( multiset )
+        {
+            for( AnyType x : items )
+                insert( x );
+            return items.size( );
+        }
+        modCount++;
+        int added = mergeBatch( sortedDistinct( items ), true );
+        maxNodeCount = Math.max( maxNodeCount, nodeCount( ) );
+        return added;
+    }
+
+    /**
+     * Remove a batch of items. Items not found are ignored.
+     * The batch is sorted and split at each node on the way down, so
+     * the path shared by several items is walked only once.
+     * A multiset removes the items one at a time, one occurrence each.
+     * @param items the items to remove.
+     * @return the number of items that were present and removed.
+     */
+    public int removeAll( Collection<? extends AnyType> items )
+    {
+        if( multiset )
+        {
+            long before = totalCount( );
+            for( AnyType x : items )
+                remove( x );
+            return (int) ( before - totalCount( ) );
+        }
+        modCount++;
+        int removed = mergeBatch( sortedDistinct( items ), false );
+        rebuildIfShrunk( );
+        return removed;
+    }
+
+    /**
+     * Split the tree at a pivot into two trees, in time proportional to
+     * the height. The nodes on the path to the pivot are copied and the
+     * subtrees hanging off it are relinked beneath the copies, shared
+     * as they are by snapshot; AVL trees are rebalanced by joining each
+     * subtree to the copies above it. This tree keeps its items and
+     * shape, but as with snapshot it now shares every node, so its next
+     * update copies the nodes on its path, and split must be called
+     * where snapshot may be.
+     * A scapegoat result that comes out deeper than its size allows is
+     * rebuilt whole.
+     * @param pivot the item to split at; it need not be present.
+     * @return two trees: the items less than pivot, then the others.
+     */
+    public List<BinarySearchTree<AnyType>> split( AnyType pivot )
+    {
+        BinarySearchTree<AnyType> less = new BinarySearchTree<>( mode, multiset );
+        BinarySearchTree<AnyType> rest = new BinarySearchTree<>( mode, multiset );
+        rest.owner = less.owner;              // The two never share a node, so one stamp serves both
+        owner = OWNERS.incrementAndGet( );    // Every current node is now shared
+
+        Pieces<AnyType> pieces = less.split( root, pivot );
+        less.root = pieces.less;
+        rest.root = ( pieces.match == null ) ? pieces.rest
+                  : rest.joinWithRoot( null, copyNode( pieces.match, rest.owner ), pieces.rest );
+        less.settleJoined( );
+        rest.settleJoined( );
+        return Arrays.asList( less, rest );
+    }
+
+    /**
+     * Join two trees into one, in time proportional to their heights.
+     * The smallest node of right is copied and becomes the root of the
+     * two, with both trees relinked beneath it, shared as they are by
+     * snapshot; AVL trees hang the shorter tree off the spine of the
+     * taller one instead, so the result stays balanced. Both trees keep
+     * their items and shape, but, as after split, each now shares every
+     * node, and join must be called where snapshot may be on both.
+     * As with split, a scapegoat result may be rebuilt.
+     * @param left the tree of smaller items.
+     * @param right the tree of larger items.
+     * @return a tree of the items of both.
+     * @throws IllegalArgumentException if the trees differ in BalanceMode
+     *         or in being multisets, or some item of left is not less
+     *         than every item of right.
+     */
+    public static <AnyType extends Comparable<? super AnyType>>
+    BinarySearchTree<AnyType> join( BinarySearchTree<AnyType> left, BinarySearchTree<AnyType> right )
+    {
+        if( left.mode != right.mode || left.multiset != right.multiset )
+            throw new IllegalArgumentException( "Trees to join must have the same BalanceMode and both be sets or multisets" );
+        if( left.isEmpty( ) )
+            return right.snapshot( );
+        if( right.isEmpty( ) )
+            return left.snapshot( );
+        if( left.findMax( left.root ).element.compareTo( right.findMin( right.root ).element ) >= 0 )
+            throw new IllegalArgumentException( "Items of the left tree must all be less than those of the right" );
+
+        BinarySearchTree<AnyType> tree = new BinarySearchTree<>( left.mode, left.multiset );
+        left.owner = OWNERS.incrementAndGet( );     // Every node of either tree is now shared
+        right.owner = OWNERS.incrementAndGet( );
+        tree.root = tree.join( left.root, right.root );
+        tree.settleJoined( );
+        return tree;
+    }
+
+    /**
+     * Return a tree of the items in this tree or in other; a multiset
+     * holds each item as often as the tree holding it more often does.
+     * See combine for how the trees are merged, and for what it does
+     * to the two trees.
+     * @param other the tree to combine with.
+     * @return the union, with this tree's BalanceMode.
+     * @throws IllegalArgumentException if one tree is a multiset and the other is not.
+     */
+    public BinarySearchTree<AnyType> union( BinarySearchTree<AnyType> other )
+    {
+        return combine( SetOperation.UNION, other );
+    }
+
+    /**
+     * Return a tree of the items in both this tree and other; a multiset
+     * holds each item as often as the tree holding it less often does.
+     * See union for what it does to the two trees.
+     * @param other the tree to combine with.
+     * @return the intersection, with this tree's BalanceMode.
+     * @throws IllegalArgumentException if one tree is a multiset and the other is not.
+     */
+    public BinarySearchTree<AnyType> intersection( BinarySearchTree<AnyType> other )
+    {
+        return combine( SetOperation.INTERSECTION, other );
+    }
+
+    /**
+     * Return a tree of the items in this tree but not in other; in a
+     * multiset, each occurrence in other cancels one in this tree.
+     * See union for what it does to the two trees.
+     * @param other the tree of items to leave out.
+     * @return the difference, with this tree's BalanceMode.
+     * @throws IllegalArgumentException if one tree is a multiset and the other is not.
+     */
+    public BinarySearchTree<AnyType> difference( BinarySearchTree<AnyType> other )
+    {
+        return combine( SetOperation.DIFFERENCE, other );
+    }
+
+    /**
+     * Find the smallest item in the tree.
+     * @return smallest item or null if empty.
+     */
+    public AnyType findMin( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+        TreeMetrics m = metrics;
+        if( m != null )
+            return measuredEnd( TreeMetrics.Operation.FIND_MIN, m );
+        return findMin( root ).element;
+    }
+
+    /**
+     * Find the largest item in the tree.
+     * @return the largest item of null if empty.
+     */
+    public AnyType findMax( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+        TreeMetrics m = metrics;
+        if( m != null )
+            return measuredEnd( TreeMetrics.Operation.FIND_MAX, m );
+        return findMax( root ).element;
+    }
+
+    /**
+     * Find an item in the tree.
+     * In SPLAY mode the item, or the last node reached looking for it,
+     * is rotated to the root, so contains changes the tree: it counts
+     * as a modification for iterators, and is not safe to call while
+     * another thread uses the tree.
+     * @param x the item to search for.
+     * @return true if found.
+     */
+    public boolean contains( AnyType x )
+    {
+        TreeMetrics m = metrics;
+        if( mode == BalanceMode.SPLAY )
+        {
+            long start = ( m != null ) ? startMeasuring( ) : 0;
+            boolean found;
+            try
+            {
+                found = splayAccess( x );
+            }
+            finally
+            {
+                pathBuffer.clear( );
+                if( m != null )
+                    measuring = false;
+            }
+            modCount++;
+            if( m != null )
+                m.record( TreeMetrics.Operation.CONTAINS, opCompares, opVisits, opRotations, System.nanoTime( ) - start );
+            return found;
+        }
+        if( m != null )
+            return measuredContains( x, m );
+        return contains( x, root );
+    }
+
+    /**
+     * Return how many times an item occurs in the tree. Unlike contains,
+     * this never restructures a SPLAY tree.
+     * @param x the item to search for.
+     * @return the number of occurrences; at most 1 unless the tree is a multiset.
+     */
+    public int count( AnyType x )
+    {
+        BinaryNode<AnyType> t = root;
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+            if( compareResult == 0 )
+                return t.count;
+            t = ( compareResult < 0 ) ? t.left : t.right;
+        }
+        return 0;
+    }
+
+    /**
+     * Return the number of occurrences of all items, in constant time.
+     * @return the number of items inserted and not removed, counting
+     *         duplicates in a multiset; otherwise the same as nodeCount.
+     */
+    public long totalCount( )
+    {
+        return occurrences( root );
+    }
+
+    /**
+     * Start or stop recording the work each operation does.
+     * While a TreeMetrics is attached, insert, remove, contains, findMin
+     * and findMax record their compareTo calls, nodes visited, rotations
+     * and latency in it; pollFirst and pollLast are recorded as removes,
+     * with no compareTo calls, since they only walk a spine. Without a
+     * recorder, the cost is a null check per operation and a
+     * flag check where counts would be kept.
+     * Each operation reads the recorder once, so one already under way
+     * when this is called is recorded whole by the old recorder, or not
+     * at all.
+     * Other operations are not recorded: in particular insertAll and
+     * removeAll on a set, which work a batch at a time (on a multiset
+     * each item is recorded as an insert or remove), split, join, the
+     * set operations, and rotateRight and rotateLeft.
+     * @param metrics the recorder, or null to stop recording.
+     */
+    public void setMetrics( TreeMetrics metrics )
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Return the recorder attached by setMetrics.
+     * @return the recorder, or null if none is attached.
+     */
+    public TreeMetrics getMetrics( )
+    {
+        return metrics;
+    }
+
+    /**
+     * Return a copy of the tree in constant time.
+     * The copy shares every node with this tree. From then on, each tree
+     * copies a shared node before changing it, so an insert or remove
+     * copies only the nodes on its path. Neither tree ever changes a node
+     * the other can see, so a thread may read the snapshot while another
+     * keeps updating this tree, without locking.
+     * Taking the snapshot is itself a change to this tree, since it marks
+     * every node shared: call it on the thread that updates this tree,
+     * or under the lock that guards its updates. An update already under
+     * way on another thread may miss the mark and change a node the
+     * snapshot holds. The snapshot can then be handed to any thread.
+     * @return a tree holding the same items, in the same shape.
+     */
+    public BinarySearchTree<AnyType> snapshot( )
+    {
+        BinarySearchTree<AnyType> view = new BinarySearchTree<>( mode, multiset );
+        view.root = root;
+        view.maxNodeCount = maxNodeCount;
+        owner = OWNERS.incrementAndGet( );    // Every current node is now shared
+        return view;
+    }
+
+    /**
+     * Return a read-only copy of the tree, laid out for searching.
+     * The items are copied into one array in breadth-first order of a
+     * complete tree, whatever the shape of this one, so later changes
+     * to this tree do not show in the copy.
+     * @return the frozen copy.
+     */
+    public FrozenBinarySearchTree<AnyType> freeze( )
+    {
+        return new FrozenBinarySearchTree<>( iterator( ), nodeCount( ) );
+    }
+
+    /**
+     * Make the tree logically empty.
+     */
+    public void makeEmpty( )
+    {
+        root = null;
+        maxNodeCount = 0;
+        modCount++;
+    }
+
+    /**
+     * Test if the tree is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( )
+    {
+        return root == null;
+    }
+
+    /**
+     * Print the tree contents in sorted order.
+     */
+    public void printTree( )
+    {
+        if( isEmpty( ) )
+            System.out.println( "Empty tree" );
+        else
+            for( AnyType x : this )
+                System.out.println( x );
+    }
+
+    /**
+     * Obtains an Iterator object used to traverse the tree in sorted order.
+     * The iterator holds one node per level and is fail-fast.
+     * @return an iterator positioned prior to the smallest item.
+     */
+    public Iterator<AnyType> iterator( )
+    {
+        return new TreeIterator( );
+    }
+
+    /**
+     * Obtains a Spliterator over the items in sorted order, which splits
+     * at subtree roots so that parallel streams need not copy the tree.
+     * @return a SORTED, DISTINCT, ORDERED and SIZED spliterator.
+     */
+    public Spliterator<AnyType> spliterator( )
+    {
+        return new TreeSpliterator( );
+    }
+
+    /**
+     * Return a sequential stream of the items in sorted order.
+     */
+    public Stream<AnyType> stream( )
+    {
+        return StreamSupport.stream( spliterator( ), false );
+    }
+
+    /**
+     * Return a possibly parallel stream of the items in sorted order.
+     */
+    public Stream<AnyType> parallelStream( )
+    {
+        return StreamSupport.stream( spliterator( ), true );
+    }
+
+    /**
+     * Find the item with the given rank, counting from 0 at the smallest.
+     * Runs in time proportional to the height of the tree.
+     * @param k the number of items smaller than the one wanted.
+     * @return the k-th smallest item.
+     * @throws IndexOutOfBoundsException if k is negative or not less than nodeCount( ).
+     */
+    public AnyType select( int k )
+    {
+        if( k < 0 || k >= size( root ) )
+            throw new IndexOutOfBoundsException( "k: " + k + ", size: " + size( root ) );
+        return select( k, root ).element;
+    }
+
+    /**
+     * Count the items smaller than x; x need not be in the tree.
+     * Runs in time proportional to the height of the tree.
+     * @param x the item to rank.
+     * @return the number of items less than x.
+     */
+    public int rank( AnyType x )
+    {
+        return rank( x, false, root );
+    }
+
+    /**
+     * Count the items between lo and hi, both inclusive.
+     * Runs in time proportional to the height of the tree.
+     * @param lo the smallest item to count.
+     * @param hi the largest item to count.
+     * @return the number of items x with lo <= x <= hi, or 0 if lo > hi.
+     */
+    public int countInRange( AnyType lo, AnyType hi )
+    {
+        if( lo.compareTo( hi ) > 0 )
+            return 0;
+        return rank( hi, true, root ) - rank( lo, false, root );
+    }
+
+    /**
+     * Find the largest item less than or equal to x.
+     * @param x the item to search for.
+     * @return the matching item or null if there is none.
+     */
+    public AnyType floor( AnyType x )
+    {
+        return elementAt( lower( x, true, root ) );
+    }
+
+    /**
+     * Find the smallest item greater than or equal to x.
+     * @param x the item to search for.
+     * @return the matching item or null if there is none.
+     */
+    public AnyType ceiling( AnyType x )
+    {
+        return elementAt( higher( x, true, root ) );
+    }
+
+    /**
+     * Find the smallest item strictly greater than x.
+     * @param x the item to search for.
+     * @return the matching item or null if there is none.
+     */
+    public AnyType higher( AnyType x )
+    {
+        return elementAt( higher( x, false, root ) );
+    }
+
+    /**
+     * Find the largest item strictly less than x.
+     * @param x the item to search for.
+     * @return the matching item or null if there is none.
+     */
+    public AnyType lower( AnyType x )
+    {
+        return elementAt( lower( x, false, root ) );
+    }
+
+    /**
+     * Obtains a lazy iterator over the items between lo and hi, both
+     * inclusive, in sorted order. Subtrees outside the range are skipped.
+     * @param lo the smallest item to visit.
+     * @param hi the largest item to visit.
+     * @return an iterator positioned prior to the smallest item in range.
+     */
+    public Iterator<AnyType> range( AnyType lo, AnyType hi )
+    {
+        return new TreeIterator( lo, hi );
+    }
+
+    /**
+     * Internal method to get element field.
+     * @param t the node.
+     * @return the element field or null if t is null.
+     */
+    private AnyType elementAt( BinaryNode<AnyType> t )
+    {
+        return t == null ? null : t.element;
+    }
+
+    /**
+     * Internal method to find the largest item below x in a subtree.
+     * @param x the item to search for.
+     * @param inclusive whether an item equal to x matches.
+     * @param t the node that roots the subtree.
+     * @return node containing the matched item, or null if there is none.
+     */
+    private BinaryNode<AnyType> lower( AnyType x, boolean inclusive, BinaryNode<AnyType> t )
+    {
+        BinaryNode<AnyType> best = null;
+
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult == 0 && inclusive )
+                return t;    // Match
+            if( compareResult > 0 )
+            {
+                best = t;
+                t = t.right;
+            }
+            else
+                t = t.left;
+        }
+        return best;
+    }
+
+    /**
+     * Internal method to find the smallest item above x in a subtree.
+     * @param x the item to search for.
+     * @param inclusive whether an item equal to x matches.
+     * @param t the node that roots the subtree.
+     * @return node containing the matched item, or null if there is none.
+     */
+    private BinaryNode<AnyType> higher( AnyType x, boolean inclusive, BinaryNode<AnyType> t )
+    {
+        BinaryNode<AnyType> best = null;
+
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult == 0 && inclusive )
+                return t;    // Match
+            if( compareResult < 0 )
+            {
+                best = t;
+                t = t.left;
+            }
+            else
+                t = t.right;
+        }
+        return best;
+    }
+
+    /**
+     * Internal method to find the node with a given rank in a subtree.
+     * @param k the rank within the subtree; 0 <= k < size( t ).
+     * @param t the node that roots the subtree.
+     * @return node containing the k-th smallest item.
+     */
+    private BinaryNode<AnyType> select( int k, BinaryNode<AnyType> t )
+    {
+        for( ; ; )
+        {
+            int leftSize = size( t.left );
+
+            if( k < leftSize )
+                t = t.left;
+            else if( k > leftSize )
+            {
+                k -= leftSize + 1;
+                t = t.right;
+            }
+            else
+                return t;    // Match
+        }
+    }
+
+    /**
+     * Internal method to count the items below x in a subtree.
+     * @param x the item to rank.
+     * @param inclusive whether an item equal to x is counted too.
+     * @param t the node that roots the subtree.
+     * @return the number of items less than x, or at most x if inclusive.
+     */
+    private int rank( AnyType x, boolean inclusive, BinaryNode<AnyType> t )
+    {
+        int count = 0;
+
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult < 0 )
+                t = t.left;
+            else if( compareResult > 0 )
+            {
+                count += size( t.left ) + 1;
+                t = t.right;
+            }
+            else
+                return count + size( t.left ) + ( inclusive ? 1 : 0 );    // Match
+        }
+        return count;
+    }
+
+    /**
+     * Internal method to insert into a subtree.
+     * Walks down with a loop and records the path instead of recursing,
+     * so a degenerate tree cannot overflow the stack. The path is kept
+     * in pathBuffer, which the caller must clear.
+     * @param x the item to insert.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private BinaryNode<AnyType> insert( AnyType x, BinaryNode<AnyType> t )
+    {
+        if( t == null )
+            return new BinaryNode<>( x, owner );
+
+        ArrayList<BinaryNode<AnyType>> path = pathBuffer;
+        path.clear( );     // In case a compareTo threw during the last insert or remove
+        BinaryNode<AnyType> p = t;
+        int compareResult;
+
+        do
+        {
+            compareResult = x.compareTo( p.element );
+
+            if( compareResult == 0 )
+            {
+                if( measuring )
+                    opCompares = opVisits = path.size( ) + 1;
+                path.add( p );
+                if( mode == BalanceMode.SPLAY )
+                    t = splay( path );
+                else if( multiset )
+                {
+                    makeWritable( path );
+                    t = path.get( 0 );
+                }
+                else
+                    return t;  // Duplicate; do nothing
+
+                if( multiset )  // Duplicate; count it where it is
+                {
+                    path.get( path.size( ) - 1 ).count++;
+                    if( mode == BalanceMode.SPLAY )
+                        t.occurrences++;   // The node is now t, the root
+                    else
+                        for( BinaryNode<AnyType> n : path )
+                            n.occurrences++;
+                }
+                return t;
+            }
+            path.add( p );
+            p = ( compareResult < 0 ) ? p.left : p.right;
+        } while( p != null );
+
+        if( measuring )
+            opCompares = opVisits = path.size( );
+        makeWritable( path );
+        BinaryNode<AnyType> parent = path.get( path.size( ) - 1 );
+        BinaryNode<AnyType> leaf = new BinaryNode<>( x, owner );
+        if( compareResult < 0 )
+            parent.left = leaf;
+        else
+            parent.right = leaf;
+        if( mode == BalanceMode.SPLAY )
+        {
+            path.add( leaf );
+            return splay( path );
+        }
+        t = retrace( path );
+
+            // The new leaf is at depth path.size( )
+        if( mode == BalanceMode.SCAPEGOAT && path.size( ) > scapegoatDepth( size( t ) ) )
+            t = rebuildScapegoat( path );
+        return t;
+    }
+
+    /**
+     * Internal method to remove from a subtree.
+     * Walks down with a loop and records the path instead of recursing,
+     * so a degenerate tree cannot overflow the stack. The path is kept
+     * in pathBuffer, which the caller must clear.
+     * @param x the item to remove.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private BinaryNode<AnyType> remove( AnyType x, BinaryNode<AnyType> t )
+    {
+        ArrayList<BinaryNode<AnyType>> path = pathBuffer;
+        path.clear( );     // In case a compareTo threw during the last insert or remove
+        BinaryNode<AnyType> p = t;
+
+        while( p != null )
+        {
+            int compareResult = x.compareTo( p.element );
+
+            if( compareResult == 0 )
+                break;
+            path.add( p );
+            p = ( compareResult < 0 ) ? p.left : p.right;
+        }
+
+        if( measuring )
+            opCompares = opVisits = path.size( ) + ( ( p != null ) ? 1 : 0 );
+        if( p == null )
+            return t;   // Item not found; do nothing
+
+        if( multiset && p.count > 1 )   // Other occurrences remain; keep the node
+        {
+            path.add( p );
+            return uncount( path );
+        }
+
+        if( p.left != null && p.right != null ) // Two children
+        {
+            path.add( p );
+            spliceSuccessor( path );
+        }
+        else
+        {
+            BinaryNode<AnyType> child = ( p.left != null ) ? p.left : p.right;
+            if( path.isEmpty( ) )
+                return child;
+            makeWritable( path );
+            replaceChild( path.get( path.size( ) - 1 ), p, child );
+        }
+        return retrace( path );
+    }
+
+    /**
+     * Internal method to remove the smallest or largest item, walking
+     * down the left or right spine and unlinking the node at its end,
+     * which has at most one child.
+     * @param first true for the smallest item, false for the largest.
+     * @return the item, or null if the tree is empty.
+     */
+    private AnyType poll( boolean first )
+    {
+        if( isEmpty( ) )
+            return null;
+
+        TreeMetrics m = metrics;
+        long start = ( m != null ) ? startMeasuring( ) : 0;
+        ArrayList<BinaryNode<AnyType>> path = pathBuffer;
+        path.clear( );     // In case a compareTo threw during the last insert or remove
+        BinaryNode<AnyType> p = root;
+        for( BinaryNode<AnyType> next; ( next = first ? p.left : p.right ) != null; p = next )
+            path.add( p );
+        if( measuring )
+            opVisits = path.size( ) + 1;
+
+        if( multiset && p.count > 1 )   // Other occurrences remain; keep the node
+        {
+            path.add( p );
+            root = uncount( path );
+        }
+        else
+        {
+            BinaryNode<AnyType> child = first ? p.right : p.left;
+            if( path.isEmpty( ) )
+                root = child;
+            else
+            {
+                makeWritable( path );
+                replaceChild( path.get( path.size( ) - 1 ), p, child );
+                root = retrace( path );
+            }
+        }
+        path.clear( );
+        modCount++;
+        rebuildIfShrunk( );
+        if( m != null )
+        {
+            measuring = false;
+            m.record( TreeMetrics.Operation.REMOVE, opCompares, opVisits, opRotations, System.nanoTime( ) - start );
+        }
+        return p.element;
+    }
+
+    /**
+     * Internal method to take one occurrence away from a multiset node
+     * that has others, leaving the shape alone.
+     * @param path the nodes from the subtree root down to the node.
+     * @return the new root of the subtree.
+     */
+    private BinaryNode<AnyType> uncount( ArrayList<BinaryNode<AnyType>> path )
+    {
+        makeWritable( path );
+        path.get( path.size( ) - 1 ).count--;
+        for( BinaryNode<AnyType> p : path )
+            p.occurrences--;
+        return path.get( 0 );
+    }
+
+    /**
+     * Internal method to unlink a node with two children by moving its
+     * successor, the smallest node of its right subtree, into its place.
+     * The successor is found and spliced out in the same walk, and no
+     * element moves between nodes, so a node always holds the element
+     * it was created with. The nodes between the two are rebalanced;
+     * those above are left to the caller.
+     * @param path the nodes from the subtree root down to the node to
+     *        unlink; on return, the node is replaced by its successor
+     *        and the path ends there.
+     */
+    private void spliceSuccessor( ArrayList<BinaryNode<AnyType>> path )
+    {
+        int found = path.size( ) - 1;
+        BinaryNode<AnyType> min = path.get( found ).right;
+        for( ; min.left != null; min = min.left )
+            path.add( min );
+        if( measuring )
+            opVisits += path.size( ) - found;
+        makeWritable( path );
+
+        BinaryNode<AnyType> p = path.get( found );
+        BinaryNode<AnyType> successor = writable( min );
+        if( path.size( ) - 1 > found )
+        {
+                // The successor is deeper than p.right: unlink it from its
+                // parent and rebalance up to p.right, which it then adopts
+            path.get( path.size( ) - 1 ).left = min.right;
+            for( int i = path.size( ) - 1; i > found + 1; i-- )
+            {
+                BinaryNode<AnyType> t = path.get( i );
+                BinaryNode<AnyType> balanced = balance( t );
+                if( balanced != t )
+                    replaceChild( path.get( i - 1 ), t, balanced );
+            }
+            successor.right = balance( path.get( found + 1 ) );
+        }
+        successor.left = p.left;
+        if( found > 0 )
+            replaceChild( path.get( found - 1 ), p, successor );
+
+        while( path.size( ) - 1 > found )
+            path.remove( path.size( ) - 1 );
+        path.set( found, successor );
+    }
+
+    /**
+     * Internal method to get a version of t that this tree may change in
+     * place. Nodes still shared with a snapshot are copied; the caller
+     * must link the copy in where t was.
+     * @param t the node to change, or null.
+     * @return t itself if this tree owns it, else a copy owned by this tree.
+     */
+    private BinaryNode<AnyType> writable( BinaryNode<AnyType> t )
+    {
+        if( t == null || t.owner == owner )
+            return t;
+        BinaryNode<AnyType> copy = new BinaryNode<>( t.element, t.left, t.right, owner );
+        copy.count = t.count;
+        copy.occurrences = t.occurrences;
+        return copy;
+    }
+
+    /**
+     * Internal method to make every node on a root-to-leaf path writable,
+     * copying shared nodes from the top down and relinking each copy into
+     * its parent on the path. path.get( 0 ) must be relinked by the caller.
+     * @param path the nodes from the subtree root down; each the parent of the next.
+     */
+    private void makeWritable( ArrayList<BinaryNode<AnyType>> path )
+    {
+        for( int i = 0; i < path.size( ); i++ )
+        {
+            BinaryNode<AnyType> t = path.get( i );
+            BinaryNode<AnyType> w = writable( t );
+            if( w != t )
+            {
+                path.set( i, w );
+                if( i > 0 )
+                    replaceChild( path.get( i - 1 ), t, w );
+            }
+        }
+    }
+
+    /**
+     * Internal method to rebalance every node on a root-to-leaf path,
+     * bottom up, after the tree below it has changed.
+     * @param path the nodes from the subtree root down; not empty.
+     * @return the new root of the subtree.
+     */
+    private BinaryNode<AnyType> retrace( ArrayList<BinaryNode<AnyType>> path )
+    {
+        for( int i = path.size( ) - 1; i > 0; i-- )
+        {
+            BinaryNode<AnyType> t = path.get( i );
+            BinaryNode<AnyType> balanced = balance( t );
+            if( balanced != t )
+                replaceChild( path.get( i - 1 ), t, balanced );
+        }
+        return balance( path.get( 0 ) );
+    }
+
+    /**
+     * Internal method to rotate the last node of a path to the top of it,
+     * two levels at a time: rotating the grandparent first when node,
+     * parent and grandparent are in a line, and the parent first when
+     * they zigzag, with a single rotation at the end if the path has an
+     * even number of nodes. Besides bringing the node up, this roughly
+     * halves the depth of every node on the path.
+     * @param path the nodes from the subtree root down to the node; each the parent of the next.
+     * @return the new root of the subtree, which is the node.
+     */
+    private BinaryNode<AnyType> splay( ArrayList<BinaryNode<AnyType>> path )
+    {
+        makeWritable( path );
+        int i = path.size( ) - 1;
+        BinaryNode<AnyType> x = path.get( i );
+
+        for( ; i >= 2; i -= 2 )
+        {
+            BinaryNode<AnyType> p = path.get( i - 1 );
+            BinaryNode<AnyType> g = path.get( i - 2 );
+            if( p.left == x && g.left == p )          // Zig-zig
+            {
+                rotateRight( g );
+                rotateRight( p );
+            }
+            else if( p.right == x && g.right == p )
+            {
+                rotateLeft( g );
+                rotateLeft( p );
+            }
+            else if( p.left == x )                    // Zig-zag
+            {
+                g.right = rotateRight( p );
+                rotateLeft( g );
+            }
+            else
+            {
+                g.left = rotateLeft( p );
+                rotateRight( g );
+            }
+            if( i >= 3 )
+                replaceChild( path.get( i - 3 ), g, x );
+        }
+
+        if( i == 1 )                                  // Zig
+        {
+            BinaryNode<AnyType> p = path.get( 0 );
+            if( p.left == x )
+                rotateRight( p );
+            else
+                rotateLeft( p );
+        }
+        return x;
+    }
+
+    /**
+     * Internal method to splay the node holding x, or else the last node
+     * reached looking for it, to the root. The path is walked in
+     * pathBuffer, which is left empty.
+     * @param x the item to search for.
+     * @return true if x is present; it is then at the root.
+     */
+    private boolean splayAccess( AnyType x )
+    {
+        if( root == null )
+            return false;
+
+        ArrayList<BinaryNode<AnyType>> path = pathBuffer;
+        path.clear( );     // In case a compareTo threw during the last search
+        BinaryNode<AnyType> p = root;
+        int compareResult;
+        do
+        {
+            path.add( p );
+            compareResult = x.compareTo( p.element );
+            p = ( compareResult < 0 ) ? p.left : p.right;
+        } while( compareResult != 0 && p != null );
+
+        if( measuring )
+            opCompares = opVisits = path.size( );
+        root = splay( path );
+        path.clear( );
+        return compareResult == 0;
+    }
+
+    /**
+     * Internal method to remove from a splay tree. x is splayed to the
+     * root; then the largest item of its left subtree is splayed to the
+     * top of that subtree, where it has no right child, and takes over
+     * the right subtree of x.
+     * @param x the item to remove.
+     * @return the new root of the tree.
+     */
+    private BinaryNode<AnyType> splayRemove( AnyType x )
+    {
+        if( !splayAccess( x ) )
+            return root;   // Item not found; the last node reached is splayed anyway
+
+        BinaryNode<AnyType> t = root;
+        if( multiset && t.count > 1 )   // Other occurrences remain; keep the node
+        {
+            t.count--;
+            t.occurrences--;
+            return t;
+        }
+        if( t.left == null )
+            return t.right;
+
+        ArrayList<BinaryNode<AnyType>> path = pathBuffer;   // Cleared by splayAccess
+        for( BinaryNode<AnyType> p = t.left; p != null; p = p.right )
+            path.add( p );
+        if( measuring )
+            opVisits += path.size( );
+        BinaryNode<AnyType> max = splay( path );
+        max.right = t.right;
+        max.update( );
+        return max;
+    }
+
+    /**
+     * Internal method to join two subtrees and a node whose item lies
+     * between theirs. When the tree is AVL and the subtrees differ in
+     * height by more than ALLOWED_IMBALANCE, k roots the shorter one
+     * together with the first node down the inner spine of the taller
+     * one that is no more than ALLOWED_IMBALANCE taller, and takes that
+     * node's place; the nodes above are rebalanced on the way back up.
+     * This takes time proportional to the difference in heights.
+     * Otherwise k simply roots both.
+     * @param l the subtree of smaller items, or null.
+     * @param k a childless node this tree may change.
+     * @param r the subtree of larger items, or null.
+     * @return the root of the joined subtree.
+     */
+    private BinaryNode<AnyType> joinWithRoot( BinaryNode<AnyType> l, BinaryNode<AnyType> k, BinaryNode<AnyType> r )
+    {
+        if( mode != BalanceMode.AVL || Math.abs( height( l ) - height( r ) ) <= ALLOWED_IMBALANCE )
+        {
+            k.left = l;
+            k.right = r;
+            k.update( );
+            return k;
+        }
+
+        boolean leftTaller = height( l ) > height( r );
+        BinaryNode<AnyType> shorter = leftTaller ? r : l;
+        ArrayList<BinaryNode<AnyType>> path = new ArrayList<>( );
+        BinaryNode<AnyType> c = leftTaller ? l : r;
+        while( height( c ) > height( shorter ) + ALLOWED_IMBALANCE )
+        {
+            path.add( c );
+            c = leftTaller ? c.right : c.left;
+        }
+
+        k.left  = leftTaller ? c : shorter;
+        k.right = leftTaller ? shorter : c;
+        k.update( );
+        makeWritable( path );
+        replaceChild( path.get( path.size( ) - 1 ), c, k );
+        return retrace( path );
+    }
+
+    /**
+     * Internal method to split a subtree at a pivot, copying the nodes
+     * on the path to it and relinking the subtrees hanging off that path
+     * beneath the copies, which this tree owns.
+     * @param t the node that roots the subtree.
+     * @param pivot the item to split at.
+     * @return the subtrees of items less than and greater than pivot,
+     *         and the node holding pivot, if any.
+     */
+    private Pieces<AnyType> split( BinaryNode<AnyType> t, AnyType pivot )
+    {
+        Pieces<AnyType> pieces = new Pieces<>( );
+
+            // Walk down to the pivot, noting which way each node was passed
+        ArrayList<BinaryNode<AnyType>> path = new ArrayList<>( );
+        BitSet wentLeft = new BitSet( );
+        while( t != null )
+        {
+            int compareResult = pivot.compareTo( t.element );
+            if( compareResult == 0 )
+            {
+                pieces.less  = t.left;
+                pieces.match = t;
+                pieces.rest  = t.right;
+                break;
+            }
+            wentLeft.set( path.size( ), compareResult < 0 );
+            path.add( t );
+            t = ( compareResult < 0 ) ? t.left : t.right;
+        }
+
+            // Then back up, adding each node and its other subtree to the side it belongs on
+        for( int i = path.size( ) - 1; i >= 0; i-- )
+        {
+            BinaryNode<AnyType> p = path.get( i );
+            if( wentLeft.get( i ) )
+                pieces.rest = joinWithRoot( pieces.rest, copyNode( p, owner ), p.right );
+            else
+                pieces.less = joinWithRoot( p.left, copyNode( p, owner ), pieces.less );
+        }
+        return pieces;
+    }
+
+    // What split cuts a subtree into
+    private static class Pieces<AnyType>
+    {
+        BinaryNode<AnyType> less;   // Items less than the pivot
+        BinaryNode<AnyType> match;  // The node holding the pivot, or null; not linked to the others
+        BinaryNode<AnyType> rest;   // Items greater than the pivot
+    }
+
+    /**
+     * Internal method to join two subtrees, every item of l being less
+     * than every item of r: the smallest node of r is unlinked, copying
+     * the path to it, and joined to both as their root.
+     * @param l the subtree of smaller items, or null.
+     * @param r the subtree of larger items, or null.
+     * @return the root of the joined subtree.
+     */
+    private BinaryNode<AnyType> join( BinaryNode<AnyType> l, BinaryNode<AnyType> r )
+    {
+        if( l == null )
+            return r;
+        if( r == null )
+            return l;
+
+        ArrayList<BinaryNode<AnyType>> path = new ArrayList<>( );
+        BinaryNode<AnyType> min = r;
+        for( ; min.left != null; min = min.left )
+            path.add( min );
+        BinaryNode<AnyType> rest = min.right;
+        if( !path.isEmpty( ) )
+        {
+            makeWritable( path );
+            path.get( path.size( ) - 1 ).left = min.right;
+            rest = retrace( path );
+        }
+        return joinWithRoot( l, copyNode( min, owner ), rest );
+    }
+
+    // The set operations combine can do
+    private enum SetOperation { UNION, INTERSECTION, DIFFERENCE }
+
+    /**
+     * Internal method to compute a union, intersection or difference.
+     * When both trees are AVL, their heights are logarithmic and the
+     * result is built by divide and conquer: the root of this tree
+     * splits the other, the halves are combined recursively, and the
+     * results are joined under a copy of the root. That takes
+     * O( m log( n / m + 1 ) ) time for trees of m <= n items, halves
+     * large enough to be worth it are combined by fork/join workers,
+     * and whole subtrees of either tree that the other has no items
+     * under are shared by the result, as snapshot shares them. The
+     * occurrences of a multiset result are summed in the nodes as they
+     * are joined, so they cost no extra pass. Both trees keep their
+     * items and shape, but, as after snapshot, each now shares every
+     * node, so its next update copies the nodes on its path, and the
+     * call must be made where snapshot may be on both.
+     * Otherwise a tree may be too deep to recurse over, and the items
+     * of both are merged in order in one linear pass into a
+     * minimum-height tree.
+     * @param op the operation.
+     * @param other the tree to combine with.
+     * @return the new tree.
+     */
+    private BinarySearchTree<AnyType> combine( SetOperation op, BinarySearchTree<AnyType> other )
+    {
+        if( multiset != other.multiset )
+            throw new IllegalArgumentException( "Trees to combine must both be sets or multisets" );
+
+        BinarySearchTree<AnyType> tree = new BinarySearchTree<>( mode, multiset );
+        if( mode == BalanceMode.AVL && other.mode == BalanceMode.AVL )
+        {
+            owner = OWNERS.incrementAndGet( );          // Every node of either tree is now shared
+            other.owner = OWNERS.incrementAndGet( );
+            if( nodeCount( ) + other.nodeCount( ) < PARALLEL_THRESHOLD )
+                tree.root = tree.combine( op, root, other.root );
+            else
+                tree.root = ForkJoinPool.commonPool( ).invoke( tree.new CombineTask( op, root, other.root ) );
+        }
+        else
+            tree.root = tree.mergeInOrder( op, root, other.root );
+        tree.settleJoined( );
+        return tree;
+    }
+
+    /**
+     * Internal method to combine two AVL subtrees by divide and conquer.
+     * @param op the operation.
+     * @param a the subtree of this side, whose root splits b.
+     * @param b the subtree of the other side.
+     * @return the root of the combined subtree, owned by this tree where it was changed.
+     */
+    private BinaryNode<AnyType> combine( SetOperation op, BinaryNode<AnyType> a, BinaryNode<AnyType> b )
+    {
+        if( b == null )
+            return ( op == SetOperation.INTERSECTION ) ? null : a;
+        if( a == null )
+            return ( op == SetOperation.UNION ) ? b : null;
+
+        Pieces<AnyType> pieces = split( b, a.element );
+        BinaryNode<AnyType> l = combine( op, a.left, pieces.less );
+        BinaryNode<AnyType> r = combine( op, a.right, pieces.rest );
+        return joinCombined( op, a, pieces.match, l, r );
+    }
+
+    /**
+     * Internal method to finish combining two subtrees: the items of
+     * both less than and greater than the root a of one have been
+     * combined; join them, under a copy of a if its item is kept.
+     * @param op the operation.
+     * @param a the root of this side's subtree.
+     * @param match the node of the other side holding a's item, or null.
+     * @param l the combined smaller items.
+     * @param r the combined larger items.
+     * @return the root of the combined subtree.
+     */
+    private BinaryNode<AnyType> joinCombined( SetOperation op, BinaryNode<AnyType> a, BinaryNode<AnyType> match,
+                                              BinaryNode<AnyType> l, BinaryNode<AnyType> r )
+    {
+        int count = combinedCount( op, a.count, ( match == null ) ? 0 : match.count );
+        if( count == 0 )
+            return join( l, r );
+        if( l == a.left && r == a.right && count == a.count )
+            return a;   // Nothing under a changed; share it
+
+        BinaryNode<AnyType> k = copyNode( a, owner );
+        k.count = count;
+        return joinWithRoot( l, k, r );
+    }
+
+    /**
+     * Internal method to find how often an item occurs in the result of
+     * a set operation; in a set, counts are 0 or 1.
+     * @param op the operation.
+     * @param a occurrences on this side.
+     * @param b occurrences on the other side.
+     * @return occurrences in the result.
+     */
+    private static int combinedCount( SetOperation op, int a, int b )
+    {
+        switch( op )
+        {
+          case UNION:
+            return Math.max( a, b );
+          case INTERSECTION:
+            return Math.min( a, b );
+          default:
+            return Math.max( a - b, 0 );
+        }
+    }
+
+    /**
+     * Internal method to combine two subtrees of any shape by walking
+     * both in order at once, then building the result with minimum height.
+     * @param op the operation.
+     * @param a the subtree of this side.
+     * @param b the subtree of the other side.
+     * @return the root of the new subtree.
+     */
+    private BinaryNode<AnyType> mergeInOrder( SetOperation op, BinaryNode<AnyType> a, BinaryNode<AnyType> b )
+    {
+        ArrayList<AnyType> items = new ArrayList<>( );
+        ArrayList<Integer> counts = new ArrayList<>( );
+        ArrayDeque<BinaryNode<AnyType>> aStack = new ArrayDeque<>( );
+        ArrayDeque<BinaryNode<AnyType>> bStack = new ArrayDeque<>( );
+        pushLeftSpine( aStack, a );
+        pushLeftSpine( bStack, b );
+
+        while( !aStack.isEmpty( ) || !bStack.isEmpty( ) )
+        {
+            int compareResult = aStack.isEmpty( ) ? 1 : bStack.isEmpty( ) ? -1
+                              : aStack.peek( ).element.compareTo( bStack.peek( ).element );
+            BinaryNode<AnyType> aNode = ( compareResult <= 0 ) ? aStack.pop( ) : null;
+            BinaryNode<AnyType> bNode = ( compareResult >= 0 ) ? bStack.pop( ) : null;
+            if( aNode != null )
+                pushLeftSpine( aStack, aNode.right );
+            if( bNode != null )
+                pushLeftSpine( bStack, bNode.right );
+
+            int count = combinedCount( op, ( aNode == null ) ? 0 : aNode.count, ( bNode == null ) ? 0 : bNode.count );
+            if( count > 0 )
+            {
+                items.add( ( aNode != null ) ? aNode.element : bNode.element );
+                counts.add( count );
+            }
+        }
+        return buildCounted( items, multiset ? counts : null );
+    }
+
+    // Combines two large AVL subtrees as combine does, with the smaller
+    // items handed to another worker
+    @SuppressWarnings( "serial" )     // Tasks are never serialized
+    private class CombineTask extends RecursiveTask<BinaryNode<AnyType>>
+    {
+        CombineTask( SetOperation op, BinaryNode<AnyType> a, BinaryNode<AnyType> b )
+        {
+            this.op = op;
+            this.a  = a;
+            this.b  = b;
+        }
+
+        @Override
+        protected BinaryNode<AnyType> compute( )
+        {
+            if( size( a ) + size( b ) < PARALLEL_THRESHOLD || a == null || b == null )
+                return combine( op, a, b );
+
+            Pieces<AnyType> pieces = split( b, a.element );
+            CombineTask left = new CombineTask( op, a.left, pieces.less );
+            left.fork( );
+            BinaryNode<AnyType> r = new CombineTask( op, a.right, pieces.rest ).compute( );
+            return joinCombined( op, a, pieces.match, left.join( ), r );
+        }
+
+        private final SetOperation op;
+        private final BinaryNode<AnyType> a;
+        private final BinaryNode<AnyType> b;
+    }
+
+    /**
+     * Internal method to finish a tree built by split or join: a
+     * scapegoat tree is rebuilt if some node ended up too deep, and
+     * starts counting its size afresh.
+     */
+    private void settleJoined( )
+    {
+        if( mode == BalanceMode.SCAPEGOAT && root != null && root.height > scapegoatDepth( root.size ) )
+            root = rebuild( root );
+        maxNodeCount = nodeCount( );
+    }
+
+    /**
+     * Internal method to find the deepest a node may be in a scapegoat
+     * tree of n nodes: log base 1 / SCAPEGOAT_ALPHA of n, rounded down.
+     * @param n the number of nodes; at least 1.
+     * @return the depth bound.
+     */
+    private static int scapegoatDepth( int n )
+    {
+        return (int) ( Math.log( n ) / -Math.log( SCAPEGOAT_ALPHA ) );
+    }
+
+    /**
+     * Internal method to restore the depth bound after an insert put a
+     * leaf too deep. The scapegoat is the lowest ancestor under which
+     * the leaf is deeper than the bound for the ancestor's own subtree;
+     * the root qualifies, so there always is one. It is rebuilt with
+     * minimum height, and the ancestors above it have their counters
+     * updated.
+     * @param path the nodes from the root down to the leaf's parent, all writable.
+     * @return the new root.
+     */
+    private BinaryNode<AnyType> rebuildScapegoat( ArrayList<BinaryNode<AnyType>> path )
+    {
+        int i = path.size( ) - 1;
+        while( i > 0 && path.size( ) - i <= scapegoatDepth( path.get( i ).size ) )
+            i--;
+
+        BinaryNode<AnyType> rebuilt = rebuild( path.get( i ) );
+        if( i == 0 )
+            return rebuilt;
+        replaceChild( path.get( i - 1 ), path.get( i ), rebuilt );
+        for( int j = i - 1; j >= 0; j-- )
+            path.get( j ).update( );
+        return path.get( 0 );
+    }
+
+    /**
+     * Internal method to rebuild a scapegoat tree whole once removes have
+     * shrunk it below SCAPEGOAT_ALPHA of the most nodes it has held since
+     * it was last rebuilt, which could leave nodes deeper than the bound.
+     * The rebuild is paid for by the removes since the last one.
+     */
+    private void rebuildIfShrunk( )
+    {
+        if( mode != BalanceMode.SCAPEGOAT || nodeCount( ) >= SCAPEGOAT_ALPHA * maxNodeCount )
+            return;
+        if( root != null )
+            root = rebuild( root );
+        maxNodeCount = nodeCount( );
+    }
+
+    /**
+     * Internal method to insert or remove a sorted batch of distinct items.
+     * Walks down with an explicit stack, handing each child the part of
+     * the batch that falls on its side, and records every node visited in
+     * preorder. Then walks that record backwards, so each node is
+     * rebalanced after its children, unlinking the nodes whose item was
+     * removed.
+     * @param keys the items, in strictly increasing order.
+     * @param inserting true to insert the items, false to remove them.
+     * @return the number of items inserted or removed.
+     */
+    private int mergeBatch( List<AnyType> keys, boolean inserting )
+    {
+        ArrayList<BinaryNode<AnyType>> visited = new ArrayList<>( );
+        ArrayList<BinaryNode<AnyType>> parents = new ArrayList<>( );
+        BitSet matched = new BitSet( );
+        ArrayDeque<BatchFrame<AnyType>> stack = new ArrayDeque<>( );
+        int changed = 0;
+
+        stack.push( new BatchFrame<>( this, null, true, root, 0, keys.size( ) ) );
+        while( !stack.isEmpty( ) )
+        {
+            BatchFrame<AnyType> f = stack.pop( );
+            if( f.lo == f.hi )
+                continue;
+
+            if( f.t == null )
+            {
+                    // Every key left in the range belongs in this empty subtree
+                if( inserting )
+                {
+                    f.attach( buildInOrder( keys.subList( f.lo, f.hi ).iterator( ), f.hi - f.lo, owner ) );
+                    changed += f.hi - f.lo;
+                }
+                continue;
+            }
+
+            BinaryNode<AnyType> t = writable( f.t );
+            if( t != f.t )
+                f.attach( t );
+
+                // Binary search for the first key not less than t.element
+            int low = f.lo, high = f.hi;
+            while( low < high )
+            {
+                int mid = ( low + high ) >>> 1;
+                if( keys.get( mid ).compareTo( t.element ) < 0 )
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            boolean match = low < f.hi && keys.get( low ).compareTo( t.element ) == 0;
+
+            if( match && !inserting )
+            {
+                matched.set( visited.size( ) );
+                changed++;
+            }
+            visited.add( t );
+            parents.add( f.parent );
+            stack.push( new BatchFrame<>( this, t, false, t.right, match ? low + 1 : low, f.hi ) );
+            stack.push( new BatchFrame<>( this, t, true, t.left, f.lo, low ) );
+        }
+
+        for( int i = visited.size( ) - 1; i >= 0; i-- )
+        {
+            BinaryNode<AnyType> t = visited.get( i );
+            BinaryNode<AnyType> merged = t;
+
+            if( matched.get( i ) )
+            {
+                if( t.left != null && t.right != null ) // Two children
+                {
+                    pathBuffer.clear( );
+                    pathBuffer.add( t );
+                    spliceSuccessor( pathBuffer );
+                    merged = rebalanceMerged( pathBuffer.get( 0 ) );
+                    pathBuffer.clear( );
+                }
+                else
+                    merged = ( t.left != null ) ? t.left : t.right;
+            }
+            else
+                merged = rebalanceMerged( t );
+
+            if( merged != t )
+            {
+                if( parents.get( i ) == null )
+                    root = merged;
+                else
+                    replaceChild( parents.get( i ), t, merged );
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Internal method to rebalance a node whose subtrees may both have
+     * changed by a whole batch. When the tree is AVL and the heights
+     * differ by more than a rotation can fix, or the tree is scapegoat
+     * and the subtree is deeper than its size allows, it is rebuilt.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private BinaryNode<AnyType> rebalanceMerged( BinaryNode<AnyType> t )
+    {
+        if( mode == BalanceMode.AVL && Math.abs( height( t.left ) - height( t.right ) ) > ALLOWED_IMBALANCE + 1 )
+            return rebuild( t );
+        t = balance( t );
+        if( mode == BalanceMode.SCAPEGOAT && t.height > scapegoatDepth( t.size ) )
+            return rebuild( t );
+        return t;
+    }
+
+    /**
+     * Internal method to rebuild a subtree with minimum height.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private BinaryNode<AnyType> rebuild( BinaryNode<AnyType> t )
+    {
+        ArrayList<AnyType> items = new ArrayList<>( size( t ) );
+        ArrayList<Integer> counts = multiset ? new ArrayList<>( size( t ) ) : null;
+        ArrayDeque<BinaryNode<AnyType>> stack = new ArrayDeque<>( );
+
+        pushLeftSpine( stack, t );
+        while( !stack.isEmpty( ) )
+        {
+            BinaryNode<AnyType> p = stack.pop( );
+            items.add( p.element );
+            if( multiset )
+                counts.add( p.count );
+            pushLeftSpine( stack, p.right );
+        }
+        return buildCounted( items, counts );
+    }
+
+    /**
+     * Internal method to build a minimum-height subtree of items, each
+     * occurring a given number of times.
+     * @param items the items in sorted order.
+     * @param counts the occurrences of each item, or null if each occurs once.
+     * @return the root of the new subtree.
+     */
+    private BinaryNode<AnyType> buildCounted( List<AnyType> items, List<Integer> counts )
+    {
+        return buildInOrder( items.iterator( ), ( counts != null ) ? counts.iterator( ) : null, items.size( ), owner );
+    }
+
+    // One pending step of mergeBatch: the keys in [lo, hi) go into the
+    // subtree t, which hangs off the left or right of parent, or is the
+    // root of tree if parent is null
+    private static class BatchFrame<AnyType extends Comparable<? super AnyType>>
+    {
+        BatchFrame( BinarySearchTree<AnyType> tree, BinaryNode<AnyType> parent, boolean left,
+                    BinaryNode<AnyType> t, int lo, int hi )
+        {
+            this.tree   = tree;
+            this.parent = parent;
+            this.left   = left;
+            this.t      = t;
+            this.lo     = lo;
+            this.hi     = hi;
+        }
+
+            // Link a replacement for t in where t hangs
+        void attach( BinaryNode<AnyType> replacement )
+        {
+            if( parent == null )
+                tree.root = replacement;
+            else if( left )
+                parent.left = replacement;
+            else
+                parent.right = replacement;
+        }
+
+        final BinarySearchTree<AnyType> tree;
+        final BinaryNode<AnyType> parent;
+        final boolean left;
+        final BinaryNode<AnyType> t;
+        final int lo;
+        final int hi;
+    }
+
+    /**
+     * Internal method to make parent point at newChild where it pointed at oldChild.
+     * @param parent the node whose child link changes.
+     * @param oldChild the current left or right child of parent.
+     * @param newChild the node to link in its place.
+     */
+    private static <AnyType> void replaceChild( BinaryNode<AnyType> parent,
+                                                BinaryNode<AnyType> oldChild, BinaryNode<AnyType> newChild )
+    {
+        if( parent.left == oldChild )
+            parent.left = newChild;
+        else
+            parent.right = newChild;
+    }
+
+    private static final int ALLOWED_IMBALANCE = 1;
+    private static final double SCAPEGOAT_ALPHA = 2.0 / 3;
+
+    /**
+     * Internal method to restore the height of a subtree after an insert or
+     * remove below it, rotating when the tree is AVL and t is out of balance.
+     * Assume t is either balanced or within one of being balanced.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private BinaryNode<AnyType> balance( BinaryNode<AnyType> t )
+    {
+        if( t == null )
+            return t;
+
+        if( mode == BalanceMode.AVL )
+        {
+            if( height( t.left ) - height( t.right ) > ALLOWED_IMBALANCE )
+            {
+                if( height( t.left.left ) < height( t.left.right ) )
+                    t.left = rotateLeft( t.left );
+                return rotateRight( t );
+            }
+            if( height( t.right ) - height( t.left ) > ALLOWED_IMBALANCE )
+            {
+                if( height( t.right.right ) < height( t.right.left ) )
+                    t.right = rotateRight( t.right );
+                return rotateLeft( t );
+            }
+        }
+
+        t.update( );
+        return t;
+    }
+
+    /**
+     * Internal method to rotate a subtree to the right, so that
+     * the left child of t becomes the root of the subtree.
+     * @param t the node that roots the subtree; its left child is not null.
+     * @return the new root of the subtree.
+     */
+    private BinaryNode<AnyType> rotateRight( BinaryNode<AnyType> t )
+    {
+        if( measuring )
+            opRotations++;
+        t = writable( t );
+        BinaryNode<AnyType> leftChild = writable( t.left );
+        t.left = leftChild.right;
+        leftChild.right = t;
+        t.update( );
+        leftChild.update( );
+        return leftChild;
+    }
+
+    /**
+     * Internal method to rotate a subtree to the left, so that
+     * the right child of t becomes the root of the subtree.
+     * @param t the node that roots the subtree; its right child is not null.
+     * @return the new root of the subtree.
+     */
+    private BinaryNode<AnyType> rotateLeft( BinaryNode<AnyType> t )
+    {
+        if( measuring )
+            opRotations++;
+        t = writable( t );
+        BinaryNode<AnyType> rightChild = writable( t.right );
+        t.right = rightChild.left;
+        rightChild.left = t;
+        t.update( );
+        rightChild.update( );
+        return rightChild;
+    }
+
+    /**
+     * Internal method to find the smallest item in a subtree.
+     * @param t the node that roots the subtree.
+     * @return node containing the smallest item.
+     */
+    private BinaryNode<AnyType> findMin( BinaryNode<AnyType> t )
+    {
+        if( t != null )
+            while( t.left != null )
+                t = t.left;
+
+        return t;
+    }
+
+    /**
+     * Internal method to find the largest item in a subtree.
+     * @param t the node that roots the subtree.
+     * @return node containing the largest item.
+     */
+    private BinaryNode<AnyType> findMax( BinaryNode<AnyType> t )
+    {
+        if( t != null )
+            while( t.right != null )
+                t = t.right;
+
+        return t;
+    }
+
+    /**
+     * Internal method to find an item in a subtree.
+     * @param x is item to search for.
+     * @param t the node that roots the subtree.
+     * @return node containing the matched item.
+     */
+    private boolean contains( AnyType x, BinaryNode<AnyType> t )
+    {
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult < 0 )
+                t = t.left;
+            else if( compareResult > 0 )
+                t = t.right;
+            else
+                return true;    // Match
+        }
+        return false;
+    }
+
+    /**
+     * Internal method to clear the counts of the operation about to run
+     * and start counting; the operation clears measuring when it ends.
+     * @return the time it starts.
+     */
+    private long startMeasuring( )
+    {
+        measuring = true;
+        opCompares = 0;
+        opVisits = 0;
+        opRotations = 0;
+        return System.nanoTime( );
+    }
+
+    /**
+     * Internal method for contains while metrics are recorded; the
+     * same search, counting the nodes it compares against.
+     * @param x is item to search for.
+     * @param m the recorder.
+     * @return true if found.
+     */
+    private boolean measuredContains( AnyType x, TreeMetrics m )
+    {
+        long start = System.nanoTime( );
+        int visits = 0;
+        boolean found = false;
+        for( BinaryNode<AnyType> t = root; t != null; )
+        {
+            visits++;
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult < 0 )
+                t = t.left;
+            else if( compareResult > 0 )
+                t = t.right;
+            else
+            {
+                found = true;
+                break;
+            }
+        }
+        m.record( TreeMetrics.Operation.CONTAINS, visits, visits, 0, System.nanoTime( ) - start );
+        return found;
+    }
+
+    /**
+     * Internal method for findMin and findMax while metrics are recorded;
+     * walks the left or right spine of a non-empty tree, counting nodes.
+     * @param op FIND_MIN or FIND_MAX.
+     * @param m the recorder.
+     * @return the item at the end of the spine.
+     */
+    private AnyType measuredEnd( TreeMetrics.Operation op, TreeMetrics m )
+    {
+        long start = System.nanoTime( );
+        int visits = 1;
+        BinaryNode<AnyType> t = root;
+        if( op == TreeMetrics.Operation.FIND_MIN )
+            for( ; t.left != null; t = t.left )
+                visits++;
+        else
+            for( ; t.right != null; t = t.right )
+                visits++;
+        m.record( op, 0, visits, 0, System.nanoTime( ) - start );
+        return t.element;
+    }
+
+    /**
+     * Internal method to build a minimum-height subtree from the next n
+     * items of an iterator, in order. Recursion depth is log n.
+     * @param items the iterator over the items in sorted order.
+     * @param n the number of items to take.
+     * @param owner the tree the new nodes belong to.
+     * @return the root of the new subtree.
+     */
+    private static <AnyType> BinaryNode<AnyType> buildInOrder( Iterator<? extends AnyType> items, int n, long owner )
+    {
+        return buildInOrder( items, null, n, owner );
+    }
+
+    /**
+     * Internal method to build a minimum-height subtree as above, giving
+     * each item the occurrences read in step from a second iterator.
+     * @param items the iterator over the items in sorted order.
+     * @param counts the iterator over their occurrences, or null if each occurs once.
+     * @param n the number of items to take.
+     * @param owner the tree the new nodes belong to.
+     * @return the root of the new subtree.
+     */
+    private static <AnyType> BinaryNode<AnyType> buildInOrder( Iterator<? extends AnyType> items, Iterator<Integer> counts,
+                                                               int n, long owner )
+    {
+        if( n == 0 )
+            return null;
+
+        int leftSize = ( n - 1 ) / 2;
+        BinaryNode<AnyType> left = buildInOrder( items, counts, leftSize, owner );
+        AnyType element = items.next( );
+        int count = ( counts != null ) ? counts.next( ) : 1;
+        BinaryNode<AnyType> right = buildInOrder( items, counts, n - 1 - leftSize, owner );
+        BinaryNode<AnyType> t = new BinaryNode<>( element, left, right, owner );
+        if( count != 1 )
+        {
+            t.count = count;
+            t.update( );
+        }
+        return t;
+    }
+
+    /**
+     * Internal method to push t and its chain of left children.
+     * @param stack the stack of nodes whose right subtrees are still to be visited.
+     * @param t the node that roots the subtree.
+     */
+    private static <AnyType> void pushLeftSpine( ArrayDeque<BinaryNode<AnyType>> stack, BinaryNode<AnyType> t )
+    {
+        for( ; t != null; t = t.left )
+            stack.push( t );
+    }
+
+    /**
+     * This is the implementation of the in-order iterator.
+     * The top of the stack is always the next node to visit.
+     * A bounded iterator never pushes nodes below lo, and stops at
+     * the first node above hi, so it only visits the range it covers.
+     */
+    private class TreeIterator implements Iterator<AnyType>
+    {
+        private final ArrayDeque<BinaryNode<AnyType>> stack = new ArrayDeque<>( );
+        private final AnyType hi;
+        private final int expectedModCount = modCount;
+
+        TreeIterator( )
+        {
+            pushLeftSpine( stack, root );
+            hi = null;
+        }
+
+        TreeIterator( AnyType lo, AnyType hi )
+        {
+            for( BinaryNode<AnyType> t = root; t != null; )
+            {
+                if( lo.compareTo( t.element ) > 0 )
+                    t = t.right;
+                else
+                {
+                    stack.push( t );
+                    t = t.left;
+                }
+            }
+            this.hi = hi;
+        }
+
+        public boolean hasNext( )
+        {
+            return !stack.isEmpty( ) && ( hi == null || hi.compareTo( stack.peek( ).element ) >= 0 );
+        }
+
+        public AnyType next( )
+        {
+            if( modCount != expectedModCount )
+                throw new ConcurrentModificationException( );
+            if( !hasNext( ) )
+                throw new NoSuchElementException( );
+
+            BinaryNode<AnyType> t = stack.pop( );
+            pushLeftSpine( stack, t.right );
+            return t.element;
+        }
+    }
+
+    /**
+     * This is the implementation of the in-order spliterator.
+     * The items not yet visited are either the whole subtree rooted at
+     * tail, or, once that is null, each node on the stack, top first,
+     * followed by its right subtree. trySplit hands out the smaller items
+     * and keeps the larger ones.
+     */
+    private class TreeSpliterator implements Spliterator<AnyType>
+    {
+        private final ArrayDeque<BinaryNode<AnyType>> stack;
+        private BinaryNode<AnyType> tail;
+        private int remaining;
+        private final int expectedModCount;
+
+        TreeSpliterator( )
+        {
+            this( new ArrayDeque<>( ), root, size( root ), modCount );
+        }
+
+        private TreeSpliterator( ArrayDeque<BinaryNode<AnyType>> stack, BinaryNode<AnyType> tail,
+                                 int remaining, int expectedModCount )
+        {
+            this.stack = stack;
+            this.tail = tail;
+            this.remaining = remaining;
+            this.expectedModCount = expectedModCount;
+        }
+
+        public boolean tryAdvance( Consumer<? super AnyType> action )
+        {
+            if( modCount != expectedModCount )
+                throw new ConcurrentModificationException( );
+            if( stack.isEmpty( ) )
+            {
+                pushLeftSpine( stack, tail );
+                tail = null;
+            }
+            if( stack.isEmpty( ) )
+                return false;
+
+            BinaryNode<AnyType> t = stack.pop( );
+            pushLeftSpine( stack, t.right );
+            remaining--;
+            action.accept( t.element );
+            return true;
+        }
+
+        public Spliterator<AnyType> trySplit( )
+        {
+            if( tail != null )
+            {
+                    // Untouched subtree: split off its left subtree
+                if( tail.left == null )
+                    return null;
+                BinaryNode<AnyType> t = tail;
+                int leftSize = size( t.left );
+                stack.push( t );
+                tail = null;
+                remaining -= leftSize;
+                return new TreeSpliterator( new ArrayDeque<>( ), t.left, leftSize, expectedModCount );
+            }
+
+            if( stack.isEmpty( ) )
+                return null;
+
+            if( stack.size( ) == 1 )
+            {
+                    // One node then its right subtree: split off the node alone
+                BinaryNode<AnyType> t = stack.pop( );
+                if( t.right == null )
+                {
+                    stack.push( t );
+                    return null;
+                }
+                tail = t.right;
+                remaining--;
+                return Spliterators.spliterator( new Object[ ] { t.element }, characteristics( ) );
+            }
+
+                // Split off every stacked node but the bottom one, which
+                // roots the largest subtree, along with their right subtrees
+            ArrayDeque<BinaryNode<AnyType>> prefix = new ArrayDeque<>( );
+            int prefixSize = 0;
+            while( stack.size( ) > 1 )
+            {
+                BinaryNode<AnyType> t = stack.pop( );
+                prefix.addLast( t );
+                prefixSize += 1 + size( t.right );
+            }
+            remaining -= prefixSize;
+            return new TreeSpliterator( prefix, null, prefixSize, expectedModCount );
+        }
+
+        public long estimateSize( )
+        {
+            return remaining;
+        }
+
+        public int characteristics( )
+        {
+            return SORTED | DISTINCT | ORDERED | SIZED | SUBSIZED;
+        }
+
+        public Comparator<? super AnyType> getComparator( )
+        {
+            return null;    // Natural ordering
+        }
+    }
+
+    /**
+     * Return the height of node t, or -1, if null.
+     * @param t the node that roots the subtree.
+     */
+    private static int height( BinaryNode<?> t )
+    {
+        return t == null ? -1 : t.height;
+    }
+
+    /**
+     * Return the occurrences of the items in the subtree rooted at t, or 0, if null.
+     * @param t the node that roots the subtree.
+     */
+    private static long occurrences( BinaryNode<?> t )
+    {
+        return t == null ? 0 : t.occurrences;
+    }
+
+    /**
+     * Return the number of nodes in the subtree rooted at t, or 0, if null.
+     * @param t the node that roots the subtree.
+     */
+    private static int size( BinaryNode<?> t )
+    {
+        return t == null ? 0 : t.size;
+    }
+    
+    // Basic node stored in binary search trees
+    private static class BinaryNode<AnyType>
+    {
+            // Constructors
+        BinaryNode( AnyType theElement, long theOwner )
+        {
+            this( theElement, null, null, theOwner );
+        }
+
+        BinaryNode( AnyType theElement, BinaryNode<AnyType> lt, BinaryNode<AnyType> rt, long theOwner )
+        {
+            element  = theElement;
+            left     = lt;
+            right    = rt;
+            owner    = theOwner;
+            update( );
+        }
+
+            // Recompute height and size from the children's counters
+        void update( )
+        {
+            height = 1 + Math.max( BinarySearchTree.height( left ), BinarySearchTree.height( right ) );
+            size   = 1 + BinarySearchTree.size( left ) + BinarySearchTree.size( right );
+            occurrences = count + BinarySearchTree.occurrences( left ) + BinarySearchTree.occurrences( right );
+        }
+
+        AnyType element;            // The data in the node
+        BinaryNode<AnyType> left;   // Left child
+        BinaryNode<AnyType> right;  // Right child
+        int height;                 // Height of the subtree rooted here
+        int size;                   // Number of nodes in the subtree rooted here
+        long owner;                 // Tree allowed to change this node in place
+        int count = 1;              // Occurrences of element; above 1 only in a multiset
+        long occurrences;           // Sum of count over the subtree rooted here
+    }
+
+
+      /** The tree root. */
+    private BinaryNode<AnyType> root;
+
+      /** How insert and remove keep the tree balanced. */
+    private final BalanceMode mode;
+
+      /** Most nodes held since the last full rebuild; only used by SCAPEGOAT. */
+    private int maxNodeCount;
+
+      /** True if duplicates are counted rather than ignored. */
+    private final boolean multiset;
+
+      /** The path insert, remove, poll and splaying walk, reused so none of
+          them allocates for it while no snapshot shares nodes; cleared after
+          each use, in a finally block wherever a compareTo may throw. */
+    private final ArrayList<BinaryNode<AnyType>> pathBuffer = new ArrayList<>( );
+
+      /** Bumped by every change, so iterators can fail fast. */
+    private int modCount = 0;
+
+      /** Stamp of the nodes this tree may change in place; all others are shared. */
+    private long owner = OWNERS.incrementAndGet( );
+
+      /** Source of owner stamps, unique across all trees; a long, so it
+          cannot wrap round to a stamp that live nodes still carry. */
+    private static final AtomicLong OWNERS = new AtomicLong( );
+
+      /** Where operations are recorded, or null when they are not. */
+    private TreeMetrics metrics;
+
+      /** True while an operation that read a non-null recorder runs; set by
+          startMeasuring, so counting follows the recorder the operation read,
+          not the metrics field. Never set while fork/join workers rotate. */
+    private boolean measuring;
+
+      /** Counts for the operation being recorded; only kept while measuring. */
+    private int opCompares;
+    private int opVisits;
+    private int opRotations;
+
+    // nodeCount method returns the size kept in the root, which insert, remove and the rotates maintain
+    public int nodeCount()
+    {
+    	return size(root);
+    }
+    
+    // height method returns the height kept in the root, or -1 if the tree is empty
+    public int height()
+    {
+    	return height(root);
+    }
+    
+    // countersValid method checks that every node's height and size agree with its children, for the test program
+    private boolean countersValid()
+    {
+    	// occurrences of every item, which a multiset also keeps as a running total
+    	long occurrences = 0;
+    	ArrayDeque<BinaryNode<AnyType>> stack = new ArrayDeque<>();
+    	if(root != null)
+    		stack.push(root);
+    	while(!stack.isEmpty())
+    	{
+    		BinaryNode<AnyType> currentNode = stack.pop();
+    		if(currentNode.height != 1 + Math.max(height(currentNode.left), height(currentNode.right))
+    				|| currentNode.size != 1 + size(currentNode.left) + size(currentNode.right)
+    				|| currentNode.occurrences != currentNode.count + occurrences(currentNode.left) + occurrences(currentNode.right)
+				|| currentNode.count < 1 || (!multiset && currentNode.count != 1))
+    		{
+    			return false;
+    		}
+    		occurrences += currentNode.count;
+    		if(currentNode.left != null)
+    			stack.push(currentNode.left);
+    		if(currentNode.right != null)
+    			stack.push(currentNode.right);
+    	}
+    	return occurrences == totalCount();
+    }
+    
+    // calling isFull method and passing the root
+    public boolean isFull()
+    {
+    	return isFull(root);
+    }
+    
+    // isFull method traverses the tree with an explicit stack and returns true as long as each node has two children or is a leaf node
+    private boolean isFull(BinaryNode<AnyType> currentNode)
+    {
+    	// an empty tree has no node with a single child
+    	if(currentNode == null)
+    	{
+    		return true;
+    	}
+    	
+    	ArrayDeque<BinaryNode<AnyType>> stack = new ArrayDeque<>();
+    	stack.push(currentNode);
+    	while(!stack.isEmpty())
+    	{
+    		currentNode = stack.pop();
+    		// if a node has two children, check if the children are a leaf or a parent with two children
+    		if(currentNode.left != null && currentNode.right != null)
+    		{
+    			stack.push(currentNode.right);
+    			stack.push(currentNode.left);
+    		}
+    		// if the node isn't a leaf or a parent with two children, return false
+    		else if(currentNode.left != null || currentNode.right != null)
+    		{
+    			return false;
+    		}
+    		// if both children are null, it's a leaf node
+    	}
+    	return true;
+    }
+    
+    // calling compareStructure method and passing the root of both trees unless they're both empty
+    public boolean compareStructure(BinarySearchTree<AnyType> otherTree)
+    {
+    	// if both trees are empty no need to compare
+    	if(this.isEmpty() && otherTree.isEmpty())
+    	{
+    		return true;
+    	}
+    	else
+    	{
+    		// call matches method if both trees aren't empty, comparing only whether corresponding nodes are there
+    		return matches(Match.STRUCTURE, root, otherTree.root);
+    	}
+    }
+   
+    // calling equals method as long as both trees aren't empty
+    public boolean equals(BinarySearchTree<AnyType> otherTree)
+    {
+    	// if both are empty no need to check
+    	if(this.isEmpty() && otherTree.isEmpty())
+    	{
+    		return true;
+    	}
+    	else
+    	{
+    		// call matches method if both trees aren't empty, comparing corresponding elements as well
+    		return matches(Match.EQUAL, this.root, otherTree.root);
+    	}
+    }
+    
+    // copy function returns an independent tree in constant time by sharing every node with this one; see snapshot
+    // it is no longer a pure read: like snapshot it marks this tree's nodes shared, so call it where this tree is updated
+    public BinarySearchTree<AnyType> copy()
+    {
+    	return snapshot();
+    }
+    
+    // calling mirror function that mirrors every node after creating a new binary search tree
+    public BinarySearchTree<AnyType> mirror()
+    {
+    	BinarySearchTree<AnyType> mirrorTree = new BinarySearchTree<>(mode, multiset);
+    	mirrorTree.maxNodeCount = maxNodeCount;
+    	// mirror method returns a binary node which in this case is the mirrored root, owned by the new tree
+    	// a large tree is split between fork/join workers, a small one is mirrored on this thread
+    	if(size(this.root) < PARALLEL_THRESHOLD)
+    	{
+    		mirrorTree.root = mirror(this.root, mirrorTree.owner);
+    	}
+    	else
+    	{
+    		mirrorTree.root = ForkJoinPool.commonPool().invoke(new MirrorTask<>(this.root, mirrorTree.owner));
+    	}
+    	// returns the new tree
+    	return mirrorTree;
+    }
+    
+    // mirror method walks the current tree in preorder with an explicit stack and mirrors each node over to the new tree
+    private static <AnyType> BinaryNode<AnyType> mirror(BinaryNode<AnyType> currentTreeNode, long owner)
+    {
+    	// if the current tree's node is null, no need to mirror
+    	if(currentTreeNode == null)
+    	{
+    		return null;
+    	}
+    	
+    	// pairs of original nodes and their new mirrors whose children still need mirroring
+    	ArrayDeque<BinaryNode<AnyType>> stack = new ArrayDeque<>();
+    	BinaryNode<AnyType> newRoot = copyNode(currentTreeNode, owner);
+    	stack.push(currentTreeNode);
+    	stack.push(newRoot);
+    	while(!stack.isEmpty())
+    	{
+    		BinaryNode<AnyType> mirrorTreeNode = stack.pop();
+    		currentTreeNode = stack.pop();
+    		// create a new binary node for each child in the current tree on the opposite side and come back for its own children later
+    		if(currentTreeNode.right != null)
+    		{
+    			mirrorTreeNode.left = copyNode(currentTreeNode.right, owner);
+    			stack.push(currentTreeNode.right);
+    			stack.push(mirrorTreeNode.left);
+    		}
+    		if(currentTreeNode.left != null)
+    		{
+    			mirrorTreeNode.right = copyNode(currentTreeNode.left, owner);
+    			stack.push(currentTreeNode.left);
+    			stack.push(mirrorTreeNode.right);
+    		}
+    	}
+    	
+    	// return the new tree's root node
+    	return newRoot;
+    }
+    
+    // copyNode method creates a childless copy of a node that keeps the node's subtree bookkeeping, since its children are copied afterwards
+    private static <AnyType> BinaryNode<AnyType> copyNode(BinaryNode<AnyType> currentTreeNode, long owner)
+    {
+    	BinaryNode<AnyType> otherTreeNode = new BinaryNode<>(currentTreeNode.element, owner);
+    	otherTreeNode.height = currentTreeNode.height;
+    	otherTreeNode.size = currentTreeNode.size;
+    	otherTreeNode.count = currentTreeNode.count;
+    	otherTreeNode.occurrences = currentTreeNode.occurrences;
+    	return otherTreeNode;
+    }
+    
+    // calling isMirror method as long as both trees aren't empty
+    public boolean isMirror(BinarySearchTree<AnyType> tree2)
+    {
+    	// if both trees are empty, it's true
+    	if(this.isEmpty() && tree2.isEmpty())
+    	{
+    		return true;
+    	}
+    	else
+    	{
+    		// if both trees aren't empty, call matches method, pairing each left child with the other tree's right child
+    		return matches(Match.MIRROR, root, tree2.root);
+
+    	}
+    }
+    
+    // the ways corresponding nodes of two trees have to match: in structure only, in structure and elements, or as mirror images with equal elements
+    private enum Match { STRUCTURE, EQUAL, MIRROR }
+    
+    // subtrees with at least this many nodes are split between fork/join workers, smaller ones are walked on a single thread
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+    
+    // matches method compares two trees from their roots, splitting the work between fork/join workers when the trees are large
+    private static <AnyType> boolean matches(Match match, BinaryNode<AnyType> currentTreeNode, BinaryNode<AnyType> otherTreeNode)
+    {
+    	if(!pairMatches(match, currentTreeNode, otherTreeNode))
+    	{
+    		return false;
+    	}
+    	// set by whichever worker finds a mismatch first, so that every other worker stops
+    	AtomicBoolean mismatch = new AtomicBoolean();
+    	if(size(currentTreeNode) < PARALLEL_THRESHOLD)
+    	{
+    		return matches(match, currentTreeNode, otherTreeNode, mismatch);
+    	}
+    	ForkJoinPool.commonPool().invoke(new MatchTask<>(match, currentTreeNode, otherTreeNode, mismatch));
+    	return !mismatch.get();
+    }
+    
+    // matches method walks two subtrees whose roots already match in step with an explicit stack, returning false as soon as corresponding nodes don't match or another worker has found a mismatch
+    private static <AnyType> boolean matches(Match match, BinaryNode<AnyType> currentTreeNode, BinaryNode<AnyType> otherTreeNode, AtomicBoolean mismatch)
+    {
+    	// pairs of corresponding nodes whose children still need comparing, pushed and popped two at a time
+    	ArrayDeque<BinaryNode<AnyType>> stack = new ArrayDeque<>();
+    	pushPair(match, stack, currentTreeNode, otherTreeNode);
+    	while(!stack.isEmpty())
+    	{
+    		if(mismatch.get())
+    		{
+    			return false;
+    		}
+    		otherTreeNode = stack.pop();
+    		currentTreeNode = stack.pop();
+    		// keep moving down both trees, crossing over to the opposite child of the other tree when checking for a mirror
+    		BinaryNode<AnyType> otherLeft = (match == Match.MIRROR) ? otherTreeNode.right : otherTreeNode.left;
+    		BinaryNode<AnyType> otherRight = (match == Match.MIRROR) ? otherTreeNode.left : otherTreeNode.right;
+    		if(!pairMatches(match, currentTreeNode.left, otherLeft) || !pairMatches(match, currentTreeNode.right, otherRight))
+    		{
+    			return false;
+    		}
+    		pushPair(match, stack, currentTreeNode.left, otherLeft);
+    		pushPair(match, stack, currentTreeNode.right, otherRight);
+    	}
+    	return true;
+    }
+    
+    // pairMatches method returns true if two corresponding nodes are both null, or are both there with subtrees of the same size and, unless only the structure matters, equal elements occurring equally often
+    private static <AnyType> boolean pairMatches(Match match, BinaryNode<AnyType> currentTreeNode, BinaryNode<AnyType> otherTreeNode)
+    {
+    	// if corresponding nodes are null, the structure is same for that parent
+    	if(currentTreeNode == null && otherTreeNode == null)
+    	{
+    		return true;
+    	}
+    	// if corresponding nodes aren't null or non-null, or their subtrees hold different numbers of nodes, return false
+    	else if(currentTreeNode == null || otherTreeNode == null || currentTreeNode.size != otherTreeNode.size)
+    	{
+    		return false;
+    	}
+    	return match == Match.STRUCTURE || (currentTreeNode.count == otherTreeNode.count && currentTreeNode.element.equals(otherTreeNode.element));
+    }
+    
+    // needsWalk method returns true if the children of two matching nodes still need comparing: not when they're null, or when a snapshot shares the node with the other tree so the subtrees are the same one
+    private static <AnyType> boolean needsWalk(Match match, BinaryNode<AnyType> currentTreeNode, BinaryNode<AnyType> otherTreeNode)
+    {
+    	return currentTreeNode != null && (currentTreeNode != otherTreeNode || match == Match.MIRROR);
+    }
+    
+    // pushPair method pushes two matching nodes if their children still need comparing
+    private static <AnyType> void pushPair(Match match, ArrayDeque<BinaryNode<AnyType>> stack, BinaryNode<AnyType> currentTreeNode, BinaryNode<AnyType> otherTreeNode)
+    {
+    	if(needsWalk(match, currentTreeNode, otherTreeNode))
+    	{
+    		stack.push(currentTreeNode);
+    		stack.push(otherTreeNode);
+    	}
+    }
+    
+    // MatchTask compares two large subtrees whose roots already match: it follows the larger pair of children down itself and hands each smaller pair to another worker, so it never recurses deeper than a logarithmic number of tasks even on a degenerate tree
+    @SuppressWarnings( "serial" )     // Tasks are never serialized
+    private static class MatchTask<AnyType> extends RecursiveAction
+    {
+    	private final Match match;
+    	private final BinaryNode<AnyType> currentTreeNode;
+    	private final BinaryNode<AnyType> otherTreeNode;
+    	private final AtomicBoolean mismatch;
+    	
+    	MatchTask(Match match, BinaryNode<AnyType> currentTreeNode, BinaryNode<AnyType> otherTreeNode, AtomicBoolean mismatch)
+    	{
+    		this.match = match;
+    		this.currentTreeNode = currentTreeNode;
+    		this.otherTreeNode = otherTreeNode;
+    		this.mismatch = mismatch;
+    	}
+    	
+    	@Override
+    	protected void compute()
+    	{
+    		ArrayList<MatchTask<AnyType>> forked = new ArrayList<>();
+    		BinaryNode<AnyType> currentNode = currentTreeNode;
+    		BinaryNode<AnyType> otherNode = otherTreeNode;
+    		while(needsWalk(match, currentNode, otherNode) && !mismatch.get())
+    		{
+    			// small subtrees are walked on this thread
+    			if(currentNode.size < PARALLEL_THRESHOLD)
+    			{
+    				if(!matches(match, currentNode, otherNode, mismatch))
+    				{
+    					mismatch.set(true);
+    				}
+    				break;
+    			}
+    			
+    			BinaryNode<AnyType> bigNode = currentNode.left;
+    			BinaryNode<AnyType> bigOther = (match == Match.MIRROR) ? otherNode.right : otherNode.left;
+    			BinaryNode<AnyType> smallNode = currentNode.right;
+    			BinaryNode<AnyType> smallOther = (match == Match.MIRROR) ? otherNode.left : otherNode.right;
+    			if(!pairMatches(match, bigNode, bigOther) || !pairMatches(match, smallNode, smallOther))
+    			{
+    				mismatch.set(true);
+    				break;
+    			}
+    			if(size(bigNode) < size(smallNode))
+    			{
+    				BinaryNode<AnyType> temp = bigNode;
+    				bigNode = smallNode;
+    				smallNode = temp;
+    				temp = bigOther;
+    				bigOther = smallOther;
+    				smallOther = temp;
+    			}
+    			
+    			// hand the smaller pair to another worker, or compare it here if it's small
+    			if(size(smallNode) >= PARALLEL_THRESHOLD)
+    			{
+    				MatchTask<AnyType> task = new MatchTask<>(match, smallNode, smallOther, mismatch);
+    				task.fork();
+    				forked.add(task);
+    			}
+    			else if(needsWalk(match, smallNode, smallOther) && !matches(match, smallNode, smallOther, mismatch))
+    			{
+    				mismatch.set(true);
+    				break;
+    			}
+    			currentNode = bigNode;
+    			otherNode = bigOther;
+    		}
+    		// a worker that stopped early still waits for the ones it started, which stop as soon as they see the mismatch
+    		for(MatchTask<AnyType> task : forked)
+    		{
+    			task.join();
+    		}
+    	}
+    }
+    
+    // MirrorTask mirrors a large subtree the same way, following the larger child down itself and handing each smaller child to another worker
+    @SuppressWarnings( "serial" )     // Tasks are never serialized
+    private static class MirrorTask<AnyType> extends RecursiveTask<BinaryNode<AnyType>>
+    {
+    	private final BinaryNode<AnyType> currentTreeNode;
+    	private final long owner;
+    	
+    	MirrorTask(BinaryNode<AnyType> currentTreeNode, long owner)
+    	{
+    		this.currentTreeNode = currentTreeNode;
+    		this.owner = owner;
+    	}
+    	
+    	@Override
+    	protected BinaryNode<AnyType> compute()
+    	{
+    		if(size(currentTreeNode) < PARALLEL_THRESHOLD)
+    		{
+    			return mirror(currentTreeNode, owner);
+    		}
+    		
+    		// forked workers, the new nodes whose children they build, and which side of each node the child goes on
+    		ArrayList<MirrorTask<AnyType>> forked = new ArrayList<>();
+    		ArrayList<BinaryNode<AnyType>> parents = new ArrayList<>();
+    		ArrayList<Boolean> onLeft = new ArrayList<>();
+    		BinaryNode<AnyType> newRoot = copyNode(currentTreeNode, owner);
+    		BinaryNode<AnyType> currentNode = currentTreeNode;
+    		BinaryNode<AnyType> mirrorNode = newRoot;
+    		while(true)
+    		{
+    			// the original's left child becomes the mirror's right child and the other way round
+    			boolean leftIsBig = size(currentNode.left) >= size(currentNode.right);
+    			BinaryNode<AnyType> bigNode = leftIsBig ? currentNode.left : currentNode.right;
+    			BinaryNode<AnyType> smallNode = leftIsBig ? currentNode.right : currentNode.left;
+    			
+    			// hand the smaller child to another worker, or mirror it here if it's small
+    			if(size(smallNode) >= PARALLEL_THRESHOLD)
+    			{
+    				MirrorTask<AnyType> task = new MirrorTask<>(smallNode, owner);
+    				task.fork();
+    				forked.add(task);
+    				parents.add(mirrorNode);
+    				onLeft.add(leftIsBig);
+    			}
+    			else if(leftIsBig)
+    			{
+    				mirrorNode.left = mirror(smallNode, owner);
+    			}
+    			else
+    			{
+    				mirrorNode.right = mirror(smallNode, owner);
+    			}
+    			
+    			// keep following the larger child while it's large, and mirror what's left of it here
+    			BinaryNode<AnyType> bigMirror = (size(bigNode) < PARALLEL_THRESHOLD) ? mirror(bigNode, owner) : copyNode(bigNode, owner);
+    			if(leftIsBig)
+    			{
+    				mirrorNode.right = bigMirror;
+    			}
+    			else
+    			{
+    				mirrorNode.left = bigMirror;
+    			}
+    			if(size(bigNode) < PARALLEL_THRESHOLD)
+    			{
+    				break;
+    			}
+    			currentNode = bigNode;
+    			mirrorNode = bigMirror;
+    		}
+    		
+    		// attach what the other workers mirrored
+    		for(int i = 0; i < forked.size(); i++)
+    		{
+    			if(onLeft.get(i))
+    			{
+    				parents.get(i).left = forked.get(i).join();
+    			}
+    			else
+    			{
+    				parents.get(i).right = forked.get(i).join();
+    			}
+    		}
+    		return newRoot;
+    	}
+    }
+    
+    // rotateRight method performs a single rotate right on the node containing the specified value, returning false if the value isn't in the tree
+    // only unbalanced and splay trees can be rotated by hand; AVL and scapegoat trees throw IllegalStateException, since their balancing can't repair an arbitrary rotate
+    public boolean rotateRight(AnyType value) throws Exception
+    {
+    	return rotate(value, true);
+    }
+    
+    // rotateLeft method performs a single rotate left on the node containing the specified value, returning false if the value isn't in the tree
+    // like rotateRight it throws IllegalStateException on AVL and scapegoat trees
+    public boolean rotateLeft(AnyType value) throws Exception
+    {
+    	return rotate(value, false);
+    }
+    
+    // rotate method finds the node containing the value in one descent and rotates it with the same node-level rotates balancing and splaying use
+    private boolean rotate(AnyType value, boolean toRight) throws Exception
+    {
+    	// a rotate can leave an AVL node two or more levels out of balance, or a scapegoat node deeper than its bound, and neither is ever repaired
+    	if(mode == BalanceMode.AVL || mode == BalanceMode.SCAPEGOAT)
+    		throw new IllegalStateException("Rotating by hand would break the balance of a " + mode + " tree");
+    	
+    	// node containing the value
+    	BinaryNode<AnyType> valueNode = root;
+    	// nodes above the node containing the value, whose heights change with the rotate
+    	ArrayList<BinaryNode<AnyType>> ancestors = new ArrayList<>();
+    	
+    	// find the node containing the value, comparing once per node
+    	int compareResult;
+    	while(valueNode != null && (compareResult = value.compareTo(valueNode.element)) != 0)
+    	{
+    		ancestors.add(valueNode);
+    		// move left if the current node is greater than the value, right if it's less
+    		valueNode = (compareResult < 0) ? valueNode.left : valueNode.right;
+    	}
+    	
+    	// if the value isn't in the tree there is nothing to rotate
+    	if(valueNode == null)
+    	{
+    		return false;
+    	}
+    	
+    	// if the child that moves up is null throw an exception
+    	if((toRight ? valueNode.left : valueNode.right) == null)
+    		throw new Exception("Rotating can't occur because necessary node is null");
+    	
+    	// copy the nodes above the rotate if they're still shared with a snapshot
+    	makeWritable(ancestors);
+    	
+    	// perform the rotate by changing left and right pointers
+    	BinaryNode<AnyType> temp = toRight ? rotateRight(valueNode) : rotateLeft(valueNode);
+    	
+    	// change the root if the root is the one shifted, otherwise have the parent point to the new node
+    	if(ancestors.isEmpty())
+    	{
+    		root = temp;
+    	}
+    	else
+    	{
+    		root = ancestors.get(0);
+    		replaceChild(ancestors.get(ancestors.size() - 1), valueNode, temp);
+    	}
+    	
+    	// the rotate can change the height of every node above it, so recompute their counters bottom up
+    	for(int i = ancestors.size() - 1; i >= 0; i--)
+    	{
+    		ancestors.get(i).update();
+    	}
+    	modCount++;
+    	return true;
+    }
+    
+    // printLevels method prints the tree level by level using a breadth-first queue
+    public void printLevels()
+    {
+    	// printing the tree
+    	System.out.println("Printing Tree Level-By-Level:");
+    	if(root == null)
+    	{
+    		return;
+    	}
+    	
+    	// queue holding the nodes of the level being printed followed by the nodes of the next level
+    	ArrayDeque<BinaryNode<AnyType>> queue = new ArrayDeque<>();
+    	queue.add(root);
+    	StringBuilder level = new StringBuilder();
+    	for(int i = 0; !queue.isEmpty(); i++)
+    	{
+    		// add the element of each node on this level to the string and queue up its children
+    		level.setLength(0);
+    		for(int remaining = queue.size(); remaining > 0; remaining--)
+    		{
+    			BinaryNode<AnyType> currentNode = queue.remove();
+    			level.append(currentNode.element).append(' ');
+    			if(currentNode.left != null)
+    				queue.add(currentNode.left);
+    			if(currentNode.right != null)
+    				queue.add(currentNode.right);
+    		}
+    		// print the string representing this level of the tree
+    		System.out.println("Level(Depth) " + i + ": " + level);
+    	}
+    }
+    
+    // shapeStats method measures the tree in one level-by-level pass, so health checks get numbers instead of printLevels output
+    public ShapeStats shapeStats()
+    {
+    	// the height kept in the root says how many levels there are before the walk starts
+    	int[] levelCounts = new int[height(root) + 1];
+    	boolean full = true;
+    	boolean complete = true;
+    	boolean degenerate = true;
+    	
+    	// a complete tree has no node after the first missing child, in level order
+    	boolean missingChild = false;
+    	ArrayDeque<BinaryNode<AnyType>> queue = new ArrayDeque<>();
+    	if(root != null)
+    		queue.add(root);
+    	for(int depth = 0; !queue.isEmpty(); depth++)
+    	{
+    		levelCounts[depth] = queue.size();
+    		for(int remaining = queue.size(); remaining > 0; remaining--)
+    		{
+    			BinaryNode<AnyType> currentNode = queue.remove();
+    			if(currentNode.left != null && currentNode.right != null)
+    				degenerate = false;
+    			else if(currentNode.left != null || currentNode.right != null)
+    				full = false;
+    			
+    			// check the children in level order, queueing the ones that exist
+    			if(currentNode.left == null)
+    				missingChild = true;
+    			else
+    			{
+    				complete = complete && !missingChild;
+    				queue.add(currentNode.left);
+    			}
+    			if(currentNode.right == null)
+    				missingChild = true;
+    			else
+    			{
+    				complete = complete && !missingChild;
+    				queue.add(currentNode.right);
+    			}
+    		}
+    	}
+    	return new ShapeStats(levelCounts, full, complete, degenerate);
+    }
+    
+        // Test program
+    public static void main( String [ ] args ) throws Exception
+    {
+        BinarySearchTree<Integer> t = new BinarySearchTree<>( );
+        final int NUMS = 4000;
+        final int GAP  =   37;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+            t.insert( i );
+
+        for( int i = 1; i < NUMS; i+= 2 )
+            t.remove( i );
+
+        if( NUMS < 40 )
+            t.printTree( );
+        if( t.findMin( ) != 2 || t.findMax( ) != NUMS - 2 )
+            System.out.println( "FindMin or FindMax error!" );
+
+        for( int i = 2; i < NUMS; i+=2 )
+             if( !t.contains( i ) )
+                 System.out.println( "Find error1!" );
+
+        for( int i = 1; i < NUMS; i+=2 )
+        {
+            if( t.contains( i ) )
+                System.out.println( "Find error2!" );
+        }
+
+        if( t.nodeCount( ) != NUMS / 2 - 1 || !t.countersValid( ) )
+            System.out.println( "Counter error!" );
+
+        for( int k = 0; k < t.nodeCount( ); k++ )
+            if( t.select( k ) != 2 * k + 2 || t.rank( 2 * k + 2 ) != k || t.rank( 2 * k + 3 ) != k + 1 )
+                System.out.println( "Select or rank error!" );
+
+        ArrayList<Integer> inOrder = new ArrayList<>( );
+        for( Integer x : t )
+            inOrder.add( x );
+        for( int k = 0; k < inOrder.size( ); k++ )
+            if( inOrder.get( k ) != 2 * k + 2 || inOrder.size( ) != t.nodeCount( ) )
+                System.out.println( "Iterator error!" );
+
+        if( t.stream( ).count( ) != t.nodeCount( )
+                || t.parallelStream( ).mapToLong( x -> x ).sum( ) != (long) ( NUMS / 2 - 1 ) * ( NUMS / 2 )
+                || !t.parallelStream( ).collect( Collectors.toList( ) ).equals( inOrder ) )
+            System.out.println( "Stream error!" );
+
+        for( int i = 4; i < NUMS - 2; i += 2 )
+            if( t.floor( i ) != i || t.floor( i + 1 ) != i || t.lower( i ) != i - 2
+                    || t.ceiling( i ) != i || t.ceiling( i - 1 ) != i || t.higher( i ) != i + 2 )
+                System.out.println( "Floor or ceiling error!" );
+
+        if( t.floor( 1 ) != null || t.lower( 2 ) != null || t.higher( NUMS - 2 ) != null || t.ceiling( NUMS - 1 ) != null || t.lower( NUMS ) != NUMS - 2 )
+            System.out.println( "Floor or ceiling bounds error!" );
+
+        int rangeCount = 0;
+        for( Iterator<Integer> itr = t.range( 101, 201 ); itr.hasNext( ); rangeCount++ )
+            if( itr.next( ) != 102 + 2 * rangeCount )
+                System.out.println( "Range error!" );
+        if( rangeCount != t.countInRange( 101, 201 ) || t.range( 201, 101 ).hasNext( ) )
+            System.out.println( "Range error!" );
+
+        if( t.countInRange( 2, NUMS - 2 ) != NUMS / 2 - 1 || t.countInRange( 3, 9 ) != 3
+                || t.countInRange( 10, 10 ) != 1 || t.countInRange( 11, 11 ) != 0 || t.countInRange( 9, 3 ) != 0 )
+            System.out.println( "CountInRange error!" );
+
+            // Same checks on an AVL tree fed sorted keys, the worst case for an unbalanced tree
+        BinarySearchTree<Integer> b = new BinarySearchTree<>( BalanceMode.AVL );
+        for( int i = 0; i < NUMS; i++ )
+            b.insert( i );
+
+        for( int i = 1; i < NUMS; i+= 2 )
+            b.remove( i );
+
+        if( b.findMin( ) != 0 || b.findMax( ) != NUMS - 2 )
+            System.out.println( "AVL FindMin or FindMax error!" );
+
+        for( int i = 0; i < NUMS; i++ )
+            if( b.contains( i ) != ( i % 2 == 0 ) )
+                System.out.println( "AVL Find error!" );
+
+        if( b.height( ) > 1.45 * Math.log( NUMS ) / Math.log( 2 ) )
+            System.out.println( "AVL Balance error!" );
+        if( b.nodeCount( ) != NUMS / 2 || !b.countersValid( ) )
+            System.out.println( "AVL Counter error!" );
+        if( !b.parallelStream( ).filter( x -> x != 0 ).collect( Collectors.toList( ) ).equals( inOrder ) )
+            System.out.println( "AVL Stream error!" );
+
+            // Same checks on a scapegoat tree fed sorted keys; its height stays logarithmic without rotations
+        BinarySearchTree<Integer> g = new BinarySearchTree<>( BalanceMode.SCAPEGOAT );
+        for( int i = 0; i < NUMS; i++ )
+        {
+            g.insert( i );
+            if( g.height( ) > Math.log( g.nodeCount( ) ) / Math.log( 1.5 ) )
+                System.out.println( "Scapegoat Balance error!" );
+        }
+
+        for( int i = 1; i < NUMS; i+= 2 )
+            g.remove( i );
+        for( int i = 0; i < NUMS; i+= 4 )
+            g.remove( i );
+
+        for( int i = 0; i < NUMS; i++ )
+            if( g.contains( i ) != ( i % 4 == 2 ) )
+                System.out.println( "Scapegoat Find error!" );
+        if( g.height( ) > Math.log( g.nodeCount( ) ) / Math.log( 1.5 ) + 1 || g.nodeCount( ) != NUMS / 4
+                || !g.countersValid( ) || g.findMin( ) != 2 )
+            System.out.println( "Scapegoat Counter error!" );
+
+            // A splay tree agrees with TreeSet, and brings each item it reaches to the root
+        BinarySearchTree<Integer> sp = new BinarySearchTree<>( BalanceMode.SPLAY );
+        java.util.TreeSet<Integer> spExpected = new java.util.TreeSet<>( );
+        java.util.Random spRandom = new java.util.Random( GAP );
+        for( int i = 0; i < 20 * NUMS; i++ )
+        {
+            int x = spRandom.nextInt( NUMS );
+            int op = spRandom.nextInt( 3 );
+            if( op == 0 )
+            {
+                sp.insert( x );
+                spExpected.add( x );
+            }
+            else if( op == 1 )
+            {
+                sp.remove( x );
+                spExpected.remove( x );
+            }
+            else if( sp.contains( x ) != spExpected.contains( x ) || ( spExpected.contains( x ) && sp.root.element != x ) )
+                System.out.println( "Splay Find error!" );
+            if( op == 0 && sp.root.element != x )
+                System.out.println( "Splay Insert error!" );
+        }
+        if( sp.nodeCount( ) != spExpected.size( ) || !sp.countersValid( )
+                || !sp.stream( ).collect( Collectors.toList( ) ).equals( new ArrayList<>( spExpected ) ) )
+            System.out.println( "Splay Counter error!" );
+
+            // Sorted inserts leave a path, and reaching its deepest node halves its height
+        BinarySearchTree<Integer> spPath = new BinarySearchTree<>( BalanceMode.SPLAY );
+        for( int i = 0; i < NUMS; i++ )
+            spPath.insert( i );
+        if( spPath.height( ) != NUMS - 1 || !spPath.contains( 0 ) || spPath.height( ) > NUMS / 2 + 1 || !spPath.countersValid( ) )
+            System.out.println( "Splay path error!" );
+        for( int i = 0; i < 10; i++ )
+            spPath.contains( i % 2 == 0 ? NUMS / 2 : NUMS - 1 );
+        if( spPath.root.element != NUMS - 1 || spPath.root.left.element != NUMS / 2 )
+            System.out.println( "Splay access error!" );
+
+            // A multiset counts duplicates in place, in every balance mode
+        for( BalanceMode multisetMode : BalanceMode.values( ) )
+        {
+            BinarySearchTree<Integer> ms = new BinarySearchTree<>( multisetMode, true );
+            java.util.TreeMap<Integer, Integer> msExpected = new java.util.TreeMap<>( );
+            java.util.Random msRandom = new java.util.Random( GAP );
+            BinarySearchTree<Integer> msSnapshot = null;
+            long snapshotTotal = 0;
+            for( int i = 0; i < 20 * NUMS; i++ )
+            {
+                int x = msRandom.nextInt( NUMS / 10 );
+                if( msRandom.nextInt( 5 ) < 3 )
+                {
+                    ms.insert( x );
+                    msExpected.merge( x, 1, Integer::sum );
+                }
+                else
+                {
+                    ms.remove( x );
+                    msExpected.computeIfPresent( x, ( k, c ) -> c == 1 ? null : c - 1 );
+                }
+                if( ms.count( x ) != msExpected.getOrDefault( x, 0 ) )
+                    System.out.println( "Multiset count error!" );
+                if( i == 10 * NUMS )
+                {
+                    msSnapshot = ms.snapshot( );
+                    snapshotTotal = ms.totalCount( );
+                }
+            }
+            long msTotal = 0;
+            for( int c : msExpected.values( ) )
+                msTotal += c;
+            if( ms.totalCount( ) != msTotal || ms.nodeCount( ) != msExpected.size( ) || !ms.countersValid( )
+                    || !ms.stream( ).collect( Collectors.toList( ) ).equals( new ArrayList<>( msExpected.keySet( ) ) ) )
+                System.out.println( "Multiset total error!" );
+            if( msSnapshot.totalCount( ) != snapshotTotal || !msSnapshot.countersValid( ) )
+                System.out.println( "Multiset snapshot error!" );
+
+                // Equal trees must agree on counts too
+            BinarySearchTree<Integer> msCopy = ms.copy( );
+            int someKey = msExpected.firstKey( );
+            msCopy.insert( someKey );
+            if( !ms.equals( ms.mirror( ).mirror( ) ) || ms.equals( msCopy )
+                    || ( multisetMode != BalanceMode.SPLAY && !ms.compareStructure( msCopy ) )
+                    || msCopy.count( someKey ) != ms.count( someKey ) + 1 )
+                System.out.println( "Multiset equals error!" );
+            if( ms.insertAll( Arrays.asList( someKey, someKey, someKey ) ) != 3 || ms.count( someKey ) != msExpected.get( someKey ) + 3
+                    || ms.removeAll( Arrays.asList( someKey, someKey, NUMS ) ) != 2 || ms.totalCount( ) != msTotal + 1 || !ms.countersValid( ) )
+                System.out.println( "Multiset batch error!" );
+        }
+            // pollFirst and pollLast drain the tree in order, and leave a snapshot alone
+        for( BalanceMode pollMode : BalanceMode.values( ) )
+            for( boolean pollMultiset : new boolean[ ] { false, true } )
+            {
+                BinarySearchTree<Integer> pq = new BinarySearchTree<>( pollMode, pollMultiset );
+                java.util.TreeMap<Integer, Integer> pqExpected = new java.util.TreeMap<>( );
+                java.util.Random pqRandom = new java.util.Random( NUMS );
+                for( int i = 0; i < NUMS; i++ )
+                {
+                    int x = pqRandom.nextInt( NUMS / 2 );
+                    pq.insert( x );
+                    pqExpected.merge( x, 1, pollMultiset ? Integer::sum : ( oldCount, one ) -> 1 );
+                }
+                BinarySearchTree<Integer> pqSnapshot = pq.snapshot( );
+                List<Integer> pqBefore = pqSnapshot.stream( ).collect( Collectors.toList( ) );
+                while( !pqExpected.isEmpty( ) )
+                {
+                    java.util.Map.Entry<Integer, Integer> e = pqRandom.nextBoolean( ) ? pqExpected.firstEntry( ) : pqExpected.lastEntry( );
+                    Integer polled = ( e.getKey( ).equals( pqExpected.firstKey( ) ) ) ? pq.pollFirst( ) : pq.pollLast( );
+                    if( !e.getKey( ).equals( polled ) )
+                        System.out.println( "Poll error!" );
+                    pqExpected.computeIfPresent( e.getKey( ), ( k, c ) -> c == 1 ? null : c - 1 );
+                    if( pqExpected.size( ) % 97 == 0 && ( !pq.countersValid( ) || pq.nodeCount( ) != pqExpected.size( ) ) )
+                        System.out.println( "Poll counter error!" );
+                }
+                if( !pq.isEmpty( ) || pq.pollFirst( ) != null || pq.pollLast( ) != null || pq.totalCount( ) != 0
+                        || !pqSnapshot.stream( ).collect( Collectors.toList( ) ).equals( pqBefore ) || !pqSnapshot.countersValid( ) )
+                    System.out.println( "Poll snapshot error!" );
+            }
+
+            // A compareTo that throws mid-descent leaves nothing behind for the next poll
+        for( BalanceMode failMode : BalanceMode.values( ) )
+            for( boolean failOnInsert : new boolean[ ] { true, false } )
+            {
+                BinarySearchTree<FailingKey> failing = new BinarySearchTree<>( failMode );
+                for( int i = 1; i <= 4; i++ )
+                    failing.insert( new FailingKey( i, false ) );
+                try
+                {
+                    if( failOnInsert )
+                        failing.insert( new FailingKey( 5, true ) );
+                    else
+                        failing.remove( new FailingKey( 5, true ) );
+                    System.out.println( "Failing compareTo error!" );
+                }
+                catch( IllegalStateException e )
+                {
+                }
+                FailingKey polled = failing.pollFirst( );
+                List<Integer> left = new ArrayList<>( );
+                for( FailingKey k : failing )
+                    if( left.add( k.value ) && left.size( ) > 4 )
+                        break;      // Stale links can make a cycle
+                if( polled == null || polled.value != 1 || failing.nodeCount( ) != 3 || !left.equals( Arrays.asList( 2, 3, 4 ) )
+                        || !failing.contains( new FailingKey( 4, false ) ) || !failing.countersValid( ) )
+                    System.out.println( "Poll after failed compareTo error!" );
+            }
+
+            // Split at every kind of pivot, then join the halves back together
+        for( BalanceMode splitMode : BalanceMode.values( ) )
+            for( boolean splitMultiset : new boolean[ ] { false, true } )
+            {
+                BinarySearchTree<Integer> whole = new BinarySearchTree<>( splitMode, splitMultiset );
+                java.util.Random splitRandom = new java.util.Random( NUMS );
+                for( int i = 0; i < NUMS; i++ )
+                    whole.insert( 2 * splitRandom.nextInt( NUMS ) );
+                List<Integer> wholeItems = whole.stream( ).collect( Collectors.toList( ) );
+                long wholeTotal = whole.totalCount( );
+
+                for( int pivot : new int[ ] { -1, 0, wholeItems.get( wholeItems.size( ) / 3 ), wholeItems.get( wholeItems.size( ) / 2 ) + 1,
+                                              wholeItems.get( wholeItems.size( ) - 1 ), 2 * NUMS } )
+                {
+                    List<BinarySearchTree<Integer>> halves = whole.split( pivot );
+                    BinarySearchTree<Integer> less = halves.get( 0 );
+                    BinarySearchTree<Integer> rest = halves.get( 1 );
+                    int cut = 0;
+                    while( cut < wholeItems.size( ) && wholeItems.get( cut ) < pivot )
+                        cut++;
+                    if( !less.stream( ).collect( Collectors.toList( ) ).equals( wholeItems.subList( 0, cut ) )
+                            || !rest.stream( ).collect( Collectors.toList( ) ).equals( wholeItems.subList( cut, wholeItems.size( ) ) )
+                            || !less.countersValid( ) || !rest.countersValid( ) || less.totalCount( ) + rest.totalCount( ) != wholeTotal )
+                        System.out.println( "Split error!" );
+                    if( splitMode == BalanceMode.AVL
+                            && ( less.height( ) > 1.45 * Math.log( less.nodeCount( ) + 2 ) / Math.log( 2 )
+                              || rest.height( ) > 1.45 * Math.log( rest.nodeCount( ) + 2 ) / Math.log( 2 ) ) )
+                        System.out.println( "Split balance error!" );
+
+                        // Changing a half leaves the whole alone
+                    rest.insert( pivot + 1 );
+                    while( less.count( wholeItems.get( 0 ) ) > 0 )
+                        less.remove( wholeItems.get( 0 ) );
+
+                    BinarySearchTree<Integer> joined = join( halves.get( 0 ), whole.split( pivot ).get( 1 ) );
+                    List<Integer> expectedJoin = new ArrayList<>( wholeItems );
+                    if( cut > 0 )
+                        expectedJoin.remove( 0 );
+                    if( !joined.stream( ).collect( Collectors.toList( ) ).equals( expectedJoin ) || !joined.countersValid( )
+                            || ( splitMode == BalanceMode.AVL && joined.height( ) > 1.45 * Math.log( joined.nodeCount( ) + 2 ) / Math.log( 2 ) ) )
+                        System.out.println( "Join error!" );
+                }
+                if( !whole.stream( ).collect( Collectors.toList( ) ).equals( wholeItems ) || !whole.countersValid( ) )
+                    System.out.println( "Split source error!" );
+            }
+
+            // Joining trees of very different heights keeps an AVL tree balanced; overlapping trees can't be joined
+        BinarySearchTree<Integer> small = new BinarySearchTree<>( BalanceMode.AVL );
+        BinarySearchTree<Integer> big = new BinarySearchTree<>( BalanceMode.AVL );
+        small.insert( -1 );
+        for( int i = 0; i < NUMS; i++ )
+            big.insert( i );
+        BinarySearchTree<Integer> smallBig = join( small, big );
+        BinarySearchTree<Integer> bigSmall = join( big, BinarySearchTree.fromSorted( new Integer[ ] { NUMS, NUMS + 1 }, BalanceMode.AVL ) );
+        if( smallBig.nodeCount( ) != NUMS + 1 || smallBig.findMin( ) != -1 || !smallBig.countersValid( ) || smallBig.height( ) > big.height( ) + 1
+                || bigSmall.findMax( ) != NUMS + 1 || !bigSmall.countersValid( ) || bigSmall.height( ) > big.height( ) + 1 )
+            System.out.println( "Uneven join error!" );
+        try
+        {
+            join( big, small );
+            System.out.println( "Overlapping join error!" );
+        }
+        catch( IllegalArgumentException e )
+        {
+        }
+
+            // Set algebra against TreeMap, by divide and conquer for AVL trees and by merging otherwise
+        for( BalanceMode algebraMode : BalanceMode.values( ) )
+            for( boolean algebraMultiset : new boolean[ ] { false, true } )
+                for( int algebraSize : new int[ ] { 0, 1, 2 * NUMS } )
+                {
+                    java.util.Random algebraRandom = new java.util.Random( algebraSize );
+                    BinarySearchTree<Integer> x = new BinarySearchTree<>( algebraMode, algebraMultiset );
+                    BinarySearchTree<Integer> y = new BinarySearchTree<>( BalanceMode.AVL, algebraMultiset );
+                    java.util.TreeMap<Integer, Integer> xCounts = new java.util.TreeMap<>( );
+                    java.util.TreeMap<Integer, Integer> yCounts = new java.util.TreeMap<>( );
+                    for( int i = 0; i < algebraSize; i++ )
+                    {
+                        int xi = algebraRandom.nextInt( 2 * algebraSize );
+                        int yi = algebraRandom.nextInt( 4 * algebraSize );
+                        x.insert( xi );
+                        y.insert( yi );
+                        xCounts.merge( xi, 1, algebraMultiset ? Integer::sum : ( oldCount, one ) -> 1 );
+                        yCounts.merge( yi, 1, algebraMultiset ? Integer::sum : ( oldCount, one ) -> 1 );
+                    }
+                    List<Integer> xBefore = x.stream( ).collect( Collectors.toList( ) );
+                    List<Integer> yBefore = y.stream( ).collect( Collectors.toList( ) );
+
+                    for( SetOperation op : SetOperation.values( ) )
+                        for( boolean swap : new boolean[ ] { false, true } )
+                        {
+                            BinarySearchTree<Integer> first = swap ? y : x;
+                            BinarySearchTree<Integer> second = swap ? x : y;
+                            java.util.TreeMap<Integer, Integer> firstCounts = swap ? yCounts : xCounts;
+                            java.util.TreeMap<Integer, Integer> secondCounts = swap ? xCounts : yCounts;
+                            java.util.TreeMap<Integer, Integer> expectedCounts = new java.util.TreeMap<>( );
+                            java.util.TreeSet<Integer> keys = new java.util.TreeSet<>( firstCounts.keySet( ) );
+                            keys.addAll( secondCounts.keySet( ) );
+                            long expectedTotal = 0;
+                            for( int k : keys )
+                            {
+                                int c = combinedCount( op, firstCounts.getOrDefault( k, 0 ), secondCounts.getOrDefault( k, 0 ) );
+                                if( c > 0 )
+                                    expectedCounts.put( k, c );
+                                expectedTotal += c;
+                            }
+
+                            BinarySearchTree<Integer> result = ( op == SetOperation.UNION ) ? first.union( second )
+                                    : ( op == SetOperation.INTERSECTION ) ? first.intersection( second ) : first.difference( second );
+                            if( !result.stream( ).collect( Collectors.toList( ) ).equals( new ArrayList<>( expectedCounts.keySet( ) ) )
+                                    || !result.countersValid( ) || result.totalCount( ) != expectedTotal )
+                                System.out.println( "Set algebra error! " + algebraMode + " " + op );
+                            for( int k : expectedCounts.keySet( ) )
+                                if( result.count( k ) != expectedCounts.get( k ) )
+                                    System.out.println( "Set algebra count error! " + algebraMode + " " + op );
+                            if( result.mode == BalanceMode.AVL && result.height( ) > 1.45 * Math.log( result.nodeCount( ) + 2 ) / Math.log( 2 ) )
+                                System.out.println( "Set algebra balance error! " + op );
+
+                                // Changing the result leaves its inputs alone
+                            result.insert( -1 );
+                            if( !expectedCounts.isEmpty( ) )
+                                result.remove( expectedCounts.firstKey( ) );
+                        }
+                    if( !x.stream( ).collect( Collectors.toList( ) ).equals( xBefore ) || !x.countersValid( )
+                            || !y.stream( ).collect( Collectors.toList( ) ).equals( yBefore ) || !y.countersValid( ) )
+                        System.out.println( "Set algebra source error!" );
+                }
+        try
+        {
+            new BinarySearchTree<Integer>( ).union( new BinarySearchTree<>( BalanceMode.NONE, true ) );
+            System.out.println( "Set algebra multiset error!" );
+        }
+        catch( IllegalArgumentException e )
+        {
+        }
+
+        BinarySearchTree<Integer> set = new BinarySearchTree<>( );
+        set.insert( 1 );
+        set.insert( 1 );
+        if( set.count( 1 ) != 1 || set.count( 2 ) != 0 || set.totalCount( ) != 1 )
+            System.out.println( "Set count error!" );
+
+            // Bulk loading builds a minimum-height tree without inserting
+        Integer [ ] sortedKeys = new Integer[ NUMS ];
+        for( int i = 0; i < NUMS; i++ )
+            sortedKeys[ i ] = i;
+        BinarySearchTree<Integer> bulk = BinarySearchTree.fromSorted( sortedKeys, BalanceMode.NONE );
+        if( bulk.nodeCount( ) != NUMS || !bulk.countersValid( )
+                || bulk.height( ) != 31 - Integer.numberOfLeadingZeros( NUMS ) || bulk.select( NUMS / 3 ) != NUMS / 3 )
+            System.out.println( "Bulk load error!" );
+
+        ArrayList<Integer> shuffled = new ArrayList<>( Arrays.asList( sortedKeys ) );
+        shuffled.addAll( Arrays.asList( sortedKeys ) );
+        Collections.shuffle( shuffled, new java.util.Random( GAP ) );
+        BinarySearchTree<Integer> bulkAvl = BinarySearchTree.fromUnsorted( shuffled, BalanceMode.AVL );
+        if( !bulkAvl.equals( bulk ) || !BinarySearchTree.fromSorted( inOrder, BalanceMode.NONE ).stream( ).collect( Collectors.toList( ) ).equals( inOrder ) )
+            System.out.println( "Bulk load error!" );
+        for( int i = NUMS; i < 2 * NUMS; i++ )
+            bulkAvl.insert( i );
+        if( bulkAvl.height( ) > 1.45 * Math.log( 2 * NUMS ) / Math.log( 2 ) || !bulkAvl.countersValid( ) )
+            System.out.println( "Bulk load AVL error!" );
+
+            // A bulk-loaded scapegoat tree rebuilds as removes shrink it; its mirror keeps the same high-water mark
+        BinarySearchTree<Integer> bulkScapegoat = BinarySearchTree.fromSorted( sortedKeys, BalanceMode.SCAPEGOAT );
+        if( bulkScapegoat.mirror( ).maxNodeCount != NUMS )
+            System.out.println( "Mirror scapegoat error!" );
+        ArrayList<Integer> spine = new ArrayList<>( );
+        for( BinaryNode<Integer> p = bulkScapegoat.root; p != null; p = p.left )
+            spine.add( p.element );
+        for( int i = 0; i < NUMS; i++ )     // Left alone, the spine would keep its full height
+            if( !spine.contains( i ) )
+                bulkScapegoat.remove( i );
+        if( bulkScapegoat.nodeCount( ) != spine.size( ) || bulkScapegoat.height( ) > scapegoatDepth( spine.size( ) )
+                || !bulkScapegoat.countersValid( ) )
+            System.out.println( "Bulk load scapegoat error!" );
+
+            // Batches give the same trees as one insert or remove at a time
+        for( BalanceMode batchMode : BalanceMode.values( ) )
+        {
+            BinarySearchTree<Integer> single = new BinarySearchTree<>( batchMode );
+            BinarySearchTree<Integer> batched = new BinarySearchTree<>( batchMode );
+            java.util.Random random = new java.util.Random( NUMS );
+            for( int round = 0; round < 20; round++ )
+            {
+                ArrayList<Integer> batch = new ArrayList<>( );
+                for( int i = 0; i < 200; i++ )
+                    batch.add( random.nextInt( NUMS ) );
+                int before = single.nodeCount( );
+                boolean inserting = round % 3 != 2;
+                for( Integer x : batch )
+                    if( inserting )
+                        single.insert( x );
+                    else
+                        single.remove( x );
+                int changed = inserting ? batched.insertAll( batch ) : batched.removeAll( batch );
+
+                if( changed != Math.abs( single.nodeCount( ) - before ) || batched.nodeCount( ) != single.nodeCount( )
+                        || !batched.countersValid( ) || !batched.stream( ).collect( Collectors.toList( ) )
+                                                            .equals( single.stream( ).collect( Collectors.toList( ) ) ) )
+                    System.out.println( "Batch error!" );
+                if( batchMode == BalanceMode.AVL && batched.height( ) > 1.45 * Math.log( batched.nodeCount( ) + 2 ) / Math.log( 2 ) )
+                    System.out.println( "Batch AVL error!" );
+            }
+        }
+
+            // Snapshots stay unchanged while either tree is updated
+        for( BalanceMode snapshotMode : BalanceMode.values( ) )
+        {
+            BinarySearchTree<Integer> live = BinarySearchTree.fromUnsorted( shuffled, snapshotMode );
+            BinarySearchTree<Integer> view = live.snapshot( );
+            List<Integer> viewItems = view.stream( ).collect( Collectors.toList( ) );
+
+            live.insert( -1 );
+            java.util.Set<Object> viewNodes = java.util.Collections.newSetFromMap( new java.util.IdentityHashMap<>( ) );
+            for( ArrayDeque<BinaryNode<Integer>> stack = new ArrayDeque<>( java.util.Collections.singleton( view.root ) ); !stack.isEmpty( ); )
+            {
+                BinaryNode<Integer> node = stack.pop( );
+                viewNodes.add( node );
+                if( node.left != null )
+                    stack.push( node.left );
+                if( node.right != null )
+                    stack.push( node.right );
+            }
+            int unshared = 0;
+            for( ArrayDeque<BinaryNode<Integer>> stack = new ArrayDeque<>( java.util.Collections.singleton( live.root ) ); !stack.isEmpty( ); )
+            {
+                BinaryNode<Integer> node = stack.pop( );
+                if( !viewNodes.contains( node ) )
+                {
+                    unshared++;
+                    if( node.left != null )
+                        stack.push( node.left );
+                    if( node.right != null )
+                        stack.push( node.right );
+                }
+            }
+            if( unshared > live.height( ) + 3 )
+                System.out.println( "Snapshot path copy error!" );
+
+            for( int i = 0; i < NUMS; i += 3 )
+                live.remove( i );
+            live.insertAll( Arrays.asList( 1, 2, 3, NUMS, NUMS + 1 ) );
+            live.removeAll( Arrays.asList( 4, 5, 6, 7 ) );
+            BinarySearchTree<Integer> viewOfView = view.snapshot( );
+            for( int i = 0; i < NUMS; i += 5 )
+                view.remove( i );
+            view.insert( NUMS * 2 );
+
+            if( !viewOfView.stream( ).collect( Collectors.toList( ) ).equals( viewItems ) || !viewOfView.countersValid( )
+                    || live.nodeCount( ) != 1 + NUMS - ( NUMS + 2 ) / 3 + 3 - 3 || !live.countersValid( ) || !view.countersValid( )
+                    || view.contains( NUMS ) || !view.contains( NUMS * 2 ) || live.contains( NUMS * 2 ) || !live.contains( 3 ) )
+                System.out.println( "Snapshot error!" );
+        }
+
+            // A degenerate tree, checked on a thread whose stack is far
+            // too small for any traversal that recurses once per level
+        Thread deepCheck = new Thread( null, ( ) -> {
+            final int DEEP = 10000;
+            BinarySearchTree<Integer> d = new BinarySearchTree<>( );
+            for( int i = 0; i < DEEP; i++ )
+                d.insert( i );
+
+            if( d.nodeCount( ) != DEEP || d.isFull( ) || !d.contains( DEEP - 1 ) || d.findMin( ) != 0 )
+                System.out.println( "Deep tree error!" );
+            if( !d.equals( d.copy( ) ) || !d.compareStructure( d.copy( ) ) || !d.isMirror( d.mirror( ) ) )
+                System.out.println( "Deep tree copy error!" );
+
+            for( int i = DEEP - 1; i >= 0; i -= 2 )
+                d.remove( i );
+            if( d.nodeCount( ) != DEEP / 2 || d.contains( DEEP - 1 ) || !d.contains( DEEP - 2 ) )
+                System.out.println( "Deep tree remove error!" );
+        }, "deepCheck", 64 * 1024 );
+        deepCheck.start( );
+        deepCheck.join( );
+
+            // Trees large enough to be compared and mirrored by fork/join workers
+        final int LARGE = 100000;
+        int [ ] largeOrder = new int[ LARGE ];
+        java.util.Random largeRandom = new java.util.Random( LARGE );
+        for( int i = 0; i < LARGE; i++ )
+            largeOrder[ i ] = 2 * largeRandom.nextInt( 10 * LARGE );
+        int changed = largeOrder[ LARGE / 2 ];
+        BinarySearchTree<Integer> large = new BinarySearchTree<>( );
+        BinarySearchTree<Integer> largeTwin = new BinarySearchTree<>( );
+        BinarySearchTree<Integer> largeShifted = new BinarySearchTree<>( );
+        BinarySearchTree<Integer> largeOneChanged = new BinarySearchTree<>( );
+        for( int x : largeOrder )
+        {
+            large.insert( x );
+            largeTwin.insert( x );
+            largeShifted.insert( x + 1 );
+            largeOneChanged.insert( x == changed ? x + 1 : x );
+        }
+        BinarySearchTree<Integer> largeMirror = large.mirror( );
+        if( !large.equals( largeTwin ) || !large.compareStructure( largeShifted ) || large.equals( largeShifted )
+                || !large.compareStructure( largeOneChanged ) || large.equals( largeOneChanged ) )
+            System.out.println( "Parallel equals error!" );
+        if( !large.isMirror( largeMirror ) || largeTwin.isMirror( largeShifted.mirror( ) ) || !largeMirror.countersValid( )
+                || !largeMirror.mirror( ).equals( large ) || large.isMirror( large ) )
+            System.out.println( "Parallel mirror error!" );
+        BinarySearchTree<Integer> largeCopy = large.copy( );
+        if( !large.equals( largeCopy ) || !large.compareStructure( largeCopy ) || !largeCopy.isMirror( largeMirror ) )
+            System.out.println( "Parallel copy error!" );
+        largeCopy.insert( 1 );
+        if( large.equals( largeCopy ) || large.compareStructure( largeCopy ) || largeCopy.isMirror( largeMirror ) )
+            System.out.println( "Parallel copy error!" );
+                
+     // creating new binary search tree
+        BinarySearchTree<Integer> w = new BinarySearchTree<>();
+        for(int i = 0; i <= 40; i++)
+        {
+        	w.insert(i);
+        }
+        
+     // creating a full tree to test is Full method
+        BinarySearchTree<Integer> fullTree = new BinarySearchTree<>();
+        fullTree.insert(25);
+        fullTree.insert(20);
+        fullTree.insert(30);
+        fullTree.insert(18);
+        fullTree.insert(22);
+        fullTree.insert(28);
+        fullTree.insert(33);
+        
+        // testing nodeCount method with trees t and w
+        System.out.println("\nCalling nodeCount method");
+        System.out.println("Node Count of tree t: " + t.nodeCount());
+        System.out.println("Node Count of w: " + w.nodeCount()); // should print 41
+        System.out.println("Node Count of fullTree: " + fullTree.nodeCount()); // should print 41
+
+     // testing isFull method with trees t and w
+        System.out.println("\nCalling isFull method");
+        System.out.println("The tree t is full(true or false): " + t.isFull()); // should print false since it has 117 levels(according to height method) and only 1999 nodes
+        System.out.println("The tree w is full(true or false): " + w.isFull()); // should print false
+        System.out.println("The tree fullTree is full(true or false): " + fullTree.isFull());
+        
+        // creating an identical tree to w to test compareStructure and equals methods
+        BinarySearchTree<Integer> twinOfW = new BinarySearchTree<>();
+        for( int i = 0; i <= 40; i++)
+        {
+        	twinOfW.insert( i );
+        }
+
+        // creating a tree with identical structure not w but not equal to test compareStructure and equals methods
+        BinarySearchTree<Integer> l = new BinarySearchTree<>();
+        for( int i = 60; i <=100; i++)
+        {
+        	l.insert( i );
+        }
+      
+        // testing compareStructure method with t and tree with different structure w
+        System.out.println("\nCalling compareStructure method");
+        System.out.println("The structure of t and w are the same(true or false): " + t.compareStructure(w)); // should print false
+        // testing compareStructure method with w and a tree with identical structure twinOfW
+        System.out.println("The structure of w and twinOfW are the same(true or false): " + w.compareStructure(twinOfW)); // should print true
+        // testing compareStructure method with w and a tree with identical structure l
+        System.out.println("The structure of w and l are the same(true or false): " + w.compareStructure(l)); // should print true
+        
+        // testing equals method with w and identical tree twinOfW
+        System.out.println("\nCalling equals method");
+        System.out.println("Trees w and twinOfW are equal(true or false): " + w.equals(twinOfW)); // should print true
+        // testing equals method with w and different tree l
+        System.out.println("Trees w and l are equal(true or false): " + w.equals(l)); // should print false
+        // testing equals method with w and different tree t
+        System.out.println("Trees w and t are equal(true or false): " + w.equals(t)); // should print false
+
+        // testing copy method after creating it using the compareStructure and equals methods and trees t and w
+        BinarySearchTree<Integer> copyOfW = w.copy();
+        BinarySearchTree<Integer> copyOfT = t.copy();
+        System.out.println("\nCalling copy method");
+        // all the outputs should be true
+        System.out.println("The copy of w has the same structure as w(true or false): " + w.compareStructure(copyOfW));
+        System.out.println("The copy of w is equal to w(true or false): " + w.equals(copyOfW));
+        System.out.println("The copy of t has the same structure as t(true or false): " + t.compareStructure(copyOfT));
+        System.out.println("The copy of t is equal to t(true or false): " + t.equals(copyOfT));
+        
+        // testing copy method with fullTree after printing the original fullTree
+        System.out.println("\nTesting with fullTree");
+        System.out.println("Original fullTree");
+        fullTree.printLevels();
+        BinarySearchTree<Integer> copyOfFullTree = fullTree.copy();
+        System.out.println("Copy of fullTree");
+        copyOfFullTree.printLevels();
+        
+        // testing mirror method with fullTree
+        System.out.println("\nCalling mirror method");
+        System.out.println("Mirror of fullTree");
+        BinarySearchTree<Integer> mirrorOfFullTree = fullTree.mirror();
+        mirrorOfFullTree.printLevels();
+        
+        // testing isMirror method with two trees that aren't mirrors and one tree that is a mirror of fullTree
+        System.out.println("\nCalling isMirror method");
+        System.out.println("Tree w is a mirror of fullTree(true or false): " + fullTree.isMirror(w)); // should return false
+        System.out.println("Tree copyOfFullTree is a mirror of fullTree(true or false): " + fullTree.isMirror(copyOfFullTree)); // should return false
+        System.out.println("Tree mirrorOfFullTree is a mirror of fullTree(true or false): " + fullTree.isMirror(mirrorOfFullTree)); // should return true
+        
+        // creating a tree to test the rotate right method
+        BinarySearchTree<Integer> testRotateRight = new BinarySearchTree<>();
+        testRotateRight.insert(100);
+        testRotateRight.insert(150);
+        testRotateRight.insert(50);
+        testRotateRight.insert(70);
+        testRotateRight.insert(40);
+        testRotateRight.insert(45);
+        
+        // printing the testRotateRight tree
+        System.out.println("\nPrinting the testRotateRight tree");
+        testRotateRight.printLevels();
+        
+        // testing rotate right method
+        System.out.println("\nCalling the rotateRight method");
+        if(!testRotateRight.rotateRight(75)) // should print that the value doesn't exist in the tree
+        	System.out.println("Value isn't in the binary search tree. Try again.");
+        System.out.println("Rotating 100 to the right");
+        testRotateRight.rotateRight(100);
+        testRotateRight.printLevels();
+        System.out.println("Rotating 100 to the right");
+        testRotateRight.rotateRight(100);
+        testRotateRight.printLevels();
+        // these 4 should throw exceptions
+ //       testRotateRight.rotateRight(70);
+ //       testRotateRight.rotateRight(40);
+ //       testRotateRight.rotateRight(150);
+ //       testRotateRight.rotateRight(100);
+
+        // testing rotate left method
+        System.out.println("\nCalling the rotateLeft method");
+        if(!testRotateRight.rotateLeft(75)) // should print that the value doesn't exist in the tree
+        	System.out.println("Value isn't in the binary search tree. Try again.");
+        System.out.println("Rotating 70 to the left");
+        testRotateRight.rotateLeft(70);
+        testRotateRight.printLevels();
+        System.out.println("Rotating 50 to the left");
+        testRotateRight.rotateLeft(50); // should return back to originally created tree
+        testRotateRight.printLevels();
+        // these 2 should throw exceptions
+ //       testRotateRight.rotateLeft(40);
+ //       testRotateRight.rotateLeft(150);
+        
+        //testing printLevels method
+        System.out.println("\nCalling printLevels method");
+        System.out.println("Testing with fullTree");
+        fullTree.printLevels();
+        System.out.println("Testing with w");
+        w.printLevels();
+
+
+        // randomly testing rotate right and rotate left and print levels
+        System.out.println("\nRandom testing of binary search tree w");
+        for(int i = 0; i < 20; i++)
+        {
+        	w.rotateLeft(i);
+        }
+        w.printLevels();
+
+        for(int i = 10; i > 5; i--)
+        {
+        	w.rotateRight(i);
+        }
+        w.printLevels();
+        if(!w.countersValid() || w.nodeCount() != 41)
+            System.out.println("Rotate counter error!");
+
+        // testing AVL balancing with the same sorted keys that made w a linked list
+        System.out.println("\nTesting AVL balancing with the keys of w");
+        BinarySearchTree<Integer> balancedW = new BinarySearchTree<>(BalanceMode.AVL);
+        for(int i = 0; i <= 40; i++)
+        {
+        	balancedW.insert(i);
+        }
+        balancedW.printLevels();
+        
+        // rotating an AVL tree by hand is refused and leaves it as it was
+        BinarySearchTree<Integer> balancedCopy = balancedW.snapshot();
+        try
+        {
+        	balancedW.rotateRight(balancedW.root.element);
+        	System.out.println("AVL rotate error!");
+        }
+        catch(IllegalStateException e)
+        {
+        	if(!balancedW.compareStructure(balancedCopy))
+        		System.out.println("AVL rotate error!");
+        }
+    }
+
+    // A key whose compareTo can be made to throw on reaching 4, for the test program
+    private static class FailingKey implements Comparable<FailingKey>
+    {
+        FailingKey( int theValue, boolean failAtFour )
+        {
+            value = theValue;
+            failing = failAtFour;
+        }
+
+        public int compareTo( FailingKey other )
+        {
+            if( failing && other.value == 4 )
+                throw new IllegalStateException( "compareTo failed" );
+            return Integer.compare( value, other.value );
+        }
+
+        final int value;
+        final boolean failing;
+    }
+}
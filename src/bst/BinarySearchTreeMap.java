@@ -0,0 +1,642 @@
+package bst;
+
+// BinarySearchTreeMap class
+//
+// CONSTRUCTION: with no initializer
+//
+// ******************PUBLIC OPERATIONS*********************
+// V get( k )             --> Return value of k, or null if absent
+// V put( k, v )          --> Map k to v; return previous value or null
+// V computeIfAbsent( k, f ) --> Return value of k, mapping it to f( k ) first if absent
+// V merge( k, v, f )     --> Map k to v if absent, else to f( old, v ); null removes k
+// V remove( k )          --> Remove k; return its value or null
+// boolean containsKey( k ) --> Return true if k is present
+// K firstKey( )          --> Return smallest key
+// K lastKey( )           --> Return largest key
+// int size( )            --> Return number of keys
+// boolean isEmpty( )     --> Return true if empty; else false
+// void makeEmpty( )      --> Remove all keys
+// void forEach( action ) --> Apply action to each key and value in key order
+// ******************ERRORS********************************
+// Throws UnderflowException as appropriate
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Implements a map from keys to values as an AVL tree whose nodes hold
+ * a value beside their key. Every operation finds or creates the node
+ * for its key in a single pass from the root, remembering the path and
+ * the last comparison, in buffers the map reuses, so that linking a new
+ * node and balancing on the way back up need no further compareTo calls;
+ * so a read-modify-write such as a per-key counter costs one descent
+ * rather than a contains, a remove and an insert.
+ * Values may not be null: as in java.util.Map, computeIfAbsent and
+ * merge treat a null result as "no mapping".
+ * Note that all "matching" is based on the compareTo method.
+ */
+public class BinarySearchTreeMap<K extends Comparable<? super K>, V>
+{
+    /**
+     * Construct the map.
+     */
+    public BinarySearchTreeMap( )
+    {
+        root = null;
+    }
+
+    /**
+     * Find the value of a key.
+     * @param key the key to search for.
+     * @return the value, or null if key is absent.
+     */
+    public V get( K key )
+    {
+        BinaryNode<K, V> t = root;
+        while( t != null )
+        {
+            int compareResult = key.compareTo( t.key );
+            if( compareResult == 0 )
+                return t.value;
+            t = ( compareResult < 0 ) ? t.left : t.right;
+        }
+        return null;
+    }
+
+    /**
+     * Find a key in the map.
+     * @param key the key to search for.
+     * @return true if found.
+     */
+    public boolean containsKey( K key )
+    {
+        return get( key ) != null;
+    }
+
+    /**
+     * Map a key to a value, replacing any value it had.
+     * @param key the key.
+     * @param value the value, not null.
+     * @return the previous value, or null if key was absent.
+     */
+    public V put( K key, V value )
+    {
+        requireValue( value );
+        BinaryNode<K, V> t = descend( key );
+        if( t != null )
+        {
+            pathBuffer.clear( );
+            V oldValue = t.value;
+            t.value = value;
+            return oldValue;
+        }
+        attach( key, value );
+        return null;
+    }
+
+    /**
+     * Return the value of a key, first mapping the key to a computed
+     * value if it is absent.
+     * @param key the key.
+     * @param mappingFunction computes the value of an absent key; it
+     *        must not change the map. If it returns null, nothing is added.
+     * @return the value of key after the call, or null if none was added.
+     */
+    public V computeIfAbsent( K key, Function<? super K, ? extends V> mappingFunction )
+    {
+        BinaryNode<K, V> t = descend( key );
+        if( t != null )
+        {
+            pathBuffer.clear( );
+            return t.value;
+        }
+
+        V value = mappingFunction.apply( key );
+        if( value != null )
+            attach( key, value );
+        else
+            pathBuffer.clear( );
+        return value;
+    }
+
+    /**
+     * Map an absent key to a value, or combine the value a key has
+     * with a new one; for instance merge( k, 1, Integer::sum ) counts
+     * occurrences of k.
+     * @param key the key.
+     * @param value the value for an absent key, or to combine with, not null.
+     * @param remappingFunction combines the old value and value; it must
+     *        not change the map. If it returns null, key is removed.
+     * @return the value of key after the call, or null if it was removed.
+     */
+    public V merge( K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction )
+    {
+        requireValue( value );
+        BinaryNode<K, V> t = descend( key );
+        if( t == null )
+        {
+            attach( key, value );
+            return value;
+        }
+
+        V newValue = remappingFunction.apply( t.value, value );
+        if( newValue == null )
+        {
+            pathBuffer.add( t );
+            unlink( pathBuffer );
+        }
+        else
+        {
+            pathBuffer.clear( );
+            t.value = newValue;
+        }
+        return newValue;
+    }
+
+    /**
+     * Remove a key from the map. Nothing is done if key is not found.
+     * @param key the key to remove.
+     * @return its value, or null if key was absent.
+     */
+    public V remove( K key )
+    {
+        BinaryNode<K, V> t = descend( key );
+        if( t == null )
+        {
+            pathBuffer.clear( );
+            return null;
+        }
+
+        V oldValue = t.value;
+        pathBuffer.add( t );
+        unlink( pathBuffer );
+        return oldValue;
+    }
+
+    /**
+     * Find the smallest key in the map.
+     * @return the smallest key.
+     * @throws UnderflowException if the map is empty.
+     */
+    public K firstKey( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+        BinaryNode<K, V> t = root;
+        while( t.left != null )
+            t = t.left;
+        return t.key;
+    }
+
+    /**
+     * Find the largest key in the map.
+     * @return the largest key.
+     * @throws UnderflowException if the map is empty.
+     */
+    public K lastKey( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+        BinaryNode<K, V> t = root;
+        while( t.right != null )
+            t = t.right;
+        return t.key;
+    }
+
+    /**
+     * Return the number of keys in the map.
+     */
+    public int size( )
+    {
+        return size;
+    }
+
+    /**
+     * Test if the map is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( )
+    {
+        return root == null;
+    }
+
+    /**
+     * Make the map logically empty.
+     */
+    public void makeEmpty( )
+    {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Apply an action to each key and its value, in key order.
+     * @param action the action; it must not change the map.
+     */
+    public void forEach( BiConsumer<? super K, ? super V> action )
+    {
+        ArrayList<BinaryNode<K, V>> stack = new ArrayList<>( );
+        BinaryNode<K, V> t = root;
+        while( t != null || !stack.isEmpty( ) )
+        {
+            for( ; t != null; t = t.left )
+                stack.add( t );
+            t = stack.remove( stack.size( ) - 1 );
+            action.accept( t.key, t.value );
+            t = t.right;
+        }
+    }
+
+    /**
+     * Internal method to search for a key, recording in pathBuffer the
+     * nodes from the root down to, but not including, the node holding
+     * key; if key is absent, down to the node that would be its parent.
+     * The caller must clear pathBuffer, or hand it to attach or unlink.
+     * @param key the key to search for.
+     * @return the node holding key, or null if it is absent.
+     */
+    private BinaryNode<K, V> descend( K key )
+    {
+        ArrayList<BinaryNode<K, V>> path = pathBuffer;
+        path.clear( );     // In case a compareTo or function threw during the last use
+        BinaryNode<K, V> t = root;
+        while( t != null )
+        {
+            int compareResult = key.compareTo( t.key );
+            lastCompare = compareResult;
+            if( compareResult == 0 )
+                return t;
+            path.add( t );
+            t = ( compareResult < 0 ) ? t.left : t.right;
+        }
+        return null;
+    }
+
+    /**
+     * Internal method to add an absent key below the end of the path
+     * descend left in pathBuffer, on the side lastCompare gives, then
+     * rebalance up the path and clear it.
+     * @param key the key.
+     * @param value its value.
+     */
+    private void attach( K key, V value )
+    {
+        ArrayList<BinaryNode<K, V>> path = pathBuffer;
+        BinaryNode<K, V> leaf = new BinaryNode<>( key, value );
+        size++;
+        if( path.isEmpty( ) )
+        {
+            root = leaf;
+            return;
+        }
+
+        BinaryNode<K, V> parent = path.get( path.size( ) - 1 );
+        if( lastCompare < 0 )
+            parent.left = leaf;
+        else
+            parent.right = leaf;
+        retrace( path );
+        path.clear( );
+    }
+
+    /**
+     * Internal method to remove the node at the end of a path, then
+     * rebalance up the path. A node with two children is replaced by the
+     * node of its successor, moved up whole, so no node ever changes its
+     * key or value; the path is extended down to the successor's old
+     * place, so no further searching is done. The path is cleared after.
+     * @param path the nodes from the root down to the node to remove.
+     */
+    private void unlink( ArrayList<BinaryNode<K, V>> path )
+    {
+        int found = path.size( ) - 1;
+        BinaryNode<K, V> t = path.get( found );
+        if( t.left != null && t.right != null )
+        {
+            BinaryNode<K, V> successor = t.right;
+            for( ; successor.left != null; successor = successor.left )
+                path.add( successor );
+            if( path.size( ) - 1 > found )
+            {
+                    // The successor is deeper than t.right: unlink it from
+                    // its parent, then let it adopt t.right
+                path.get( path.size( ) - 1 ).left = successor.right;
+                successor.right = t.right;
+            }
+            successor.left = t.left;
+            successor.height = t.height;    // So retrace sees what changed below it
+            if( found == 0 )
+                root = successor;
+            else
+                replaceChild( path.get( found - 1 ), t, successor );
+            path.set( found, successor );
+            size--;
+            retrace( path );
+            path.clear( );
+            return;
+        }
+
+        path.remove( path.size( ) - 1 );
+        BinaryNode<K, V> child = ( t.left != null ) ? t.left : t.right;
+        if( path.isEmpty( ) )
+            root = child;
+        else
+            replaceChild( path.get( path.size( ) - 1 ), t, child );
+        size--;
+        retrace( path );
+        path.clear( );
+    }
+
+    /**
+     * Internal method to rebalance every node on a path, bottom up,
+     * after a node was added or removed below its end.
+     * @param path the nodes from the root down.
+     */
+    private void retrace( ArrayList<BinaryNode<K, V>> path )
+    {
+        for( int i = path.size( ) - 1; i >= 0; i-- )
+        {
+            BinaryNode<K, V> t = path.get( i );
+            int oldHeight = t.height;
+            BinaryNode<K, V> b = balance( t );
+            if( i == 0 )
+                root = b;
+            else
+                replaceChild( path.get( i - 1 ), t, b );
+            if( b == t && t.height == oldHeight )
+                return;     // Nothing above can change
+        }
+    }
+
+    /**
+     * Internal method to point a parent at a new child in place of an old one.
+     * @param parent the parent.
+     * @param oldChild one of its children.
+     * @param newChild the replacement.
+     */
+    private static <K, V> void replaceChild( BinaryNode<K, V> parent, BinaryNode<K, V> oldChild, BinaryNode<K, V> newChild )
+    {
+        if( parent.left == oldChild )
+            parent.left = newChild;
+        else
+            parent.right = newChild;
+    }
+
+    /**
+     * Internal method to restore the AVL balance of a subtree whose
+     * children are balanced and differ in height by at most two.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private static <K, V> BinaryNode<K, V> balance( BinaryNode<K, V> t )
+    {
+        if( height( t.left ) - height( t.right ) > ALLOWED_IMBALANCE )
+        {
+            if( height( t.left.left ) < height( t.left.right ) )
+                t.left = rotateLeft( t.left );
+            return rotateRight( t );
+        }
+        if( height( t.right ) - height( t.left ) > ALLOWED_IMBALANCE )
+        {
+            if( height( t.right.right ) < height( t.right.left ) )
+                t.right = rotateRight( t.right );
+            return rotateLeft( t );
+        }
+
+        t.update( );
+        return t;
+    }
+
+    /**
+     * Internal method to rotate a subtree to the right, so that
+     * the left child of t becomes the root of the subtree.
+     * @param t the node that roots the subtree; its left child is not null.
+     * @return the new root of the subtree.
+     */
+    private static <K, V> BinaryNode<K, V> rotateRight( BinaryNode<K, V> t )
+    {
+        BinaryNode<K, V> leftChild = t.left;
+        t.left = leftChild.right;
+        leftChild.right = t;
+        t.update( );
+        leftChild.update( );
+        return leftChild;
+    }
+
+    /**
+     * Internal method to rotate a subtree to the left, so that
+     * the right child of t becomes the root of the subtree.
+     * @param t the node that roots the subtree; its right child is not null.
+     * @return the new root of the subtree.
+     */
+    private static <K, V> BinaryNode<K, V> rotateLeft( BinaryNode<K, V> t )
+    {
+        BinaryNode<K, V> rightChild = t.right;
+        t.right = rightChild.left;
+        rightChild.left = t;
+        t.update( );
+        rightChild.update( );
+        return rightChild;
+    }
+
+    /**
+     * Return the height of node t, or -1, if null.
+     * @param t the node that roots the subtree.
+     */
+    private static int height( BinaryNode<?, ?> t )
+    {
+        return t == null ? -1 : t.height;
+    }
+
+    /**
+     * Internal method to reject null values, which would read as absent keys.
+     * @param value the value.
+     */
+    private static void requireValue( Object value )
+    {
+        if( value == null )
+            throw new NullPointerException( "null value" );
+    }
+
+    /**
+     * Internal method to test that every node of a subtree records its
+     * height and meets the AVL balance condition; for the test program.
+     * @param t the node that roots the subtree.
+     * @return true if the subtree is a valid AVL tree.
+     */
+    private static boolean balanced( BinaryNode<?, ?> t )
+    {
+        return t == null
+            || t.height == 1 + Math.max( height( t.left ), height( t.right ) )
+               && Math.abs( height( t.left ) - height( t.right ) ) <= ALLOWED_IMBALANCE
+               && balanced( t.left ) && balanced( t.right );
+    }
+
+    // Basic node stored in the map
+    private static class BinaryNode<K, V>
+    {
+            // Constructors
+        BinaryNode( K theKey, V theValue )
+        {
+            key   = theKey;
+            value = theValue;
+        }
+
+            // Recompute height from the children's heights
+        void update( )
+        {
+            height = 1 + Math.max( BinarySearchTreeMap.height( left ), BinarySearchTreeMap.height( right ) );
+        }
+
+        K key;                      // The key that orders the node
+        V value;                    // The value mapped to the key
+        BinaryNode<K, V> left;      // Left child
+        BinaryNode<K, V> right;     // Right child
+        int height;                 // Height of the subtree rooted here
+    }
+
+
+    private static final int ALLOWED_IMBALANCE = 1;
+
+      /** The tree root. */
+    private BinaryNode<K, V> root;
+
+      /** Number of keys in the map. */
+    private int size;
+
+      /** The path descend walks, reused so no operation allocates one;
+          cleared after each use. */
+    private final ArrayList<BinaryNode<K, V>> pathBuffer = new ArrayList<>( );
+
+      /** The result of the last compareTo descend made, so attach knows
+          which side of the last node on the path an absent key goes. */
+    private int lastCompare;
+
+
+        // Test program
+    public static void main( String [ ] args )
+    {
+        final int NUMS = 4000;
+        final int GAP  =   37;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+        BinarySearchTreeMap<Integer, Integer> m = new BinarySearchTreeMap<>( );
+        TreeMap<Integer, Integer> expected = new TreeMap<>( );
+        Random random = new Random( GAP );
+        for( int i = 0; i < 20 * NUMS; i++ )
+        {
+            int k = random.nextInt( NUMS );
+            int v = random.nextInt( 3 );
+            switch( random.nextInt( 5 ) )
+            {
+              case 0:
+                if( !Objects.equals( m.put( k, v ), expected.put( k, v ) ) )
+                    System.out.println( "Put error!" );
+                break;
+              case 1:
+                if( !Objects.equals( m.remove( k ), expected.remove( k ) ) )
+                    System.out.println( "Remove error!" );
+                break;
+              case 2:
+                    // A zero total removes the key
+                BiFunction<Integer, Integer, Integer> sum = ( a, b ) -> ( a + b ) % 3 == 0 ? null : a + b;
+                if( !Objects.equals( m.merge( k, v, sum ), expected.merge( k, v, sum ) ) )
+                    System.out.println( "Merge error!" );
+                break;
+              case 3:
+                Function<Integer, Integer> f = key -> ( key % 2 == 0 ) ? key : null;
+                if( !Objects.equals( m.computeIfAbsent( k, f ), expected.computeIfAbsent( k, f ) ) )
+                    System.out.println( "ComputeIfAbsent error!" );
+                break;
+              default:
+                if( !Objects.equals( m.get( k ), expected.get( k ) ) || m.containsKey( k ) != expected.containsKey( k ) )
+                    System.out.println( "Get error!" );
+            }
+        }
+
+        if( m.size( ) != expected.size( ) || !balanced( m.root ) || m.firstKey( ) != expected.firstKey( ).intValue( )
+                || m.lastKey( ) != expected.lastKey( ).intValue( ) )
+            System.out.println( "Size error!" );
+        TreeMap<Integer, Integer> visited = new TreeMap<>( );
+        ArrayList<Integer> order = new ArrayList<>( );
+        m.forEach( ( k, v ) -> { visited.put( k, v ); order.add( k ); } );
+        if( !visited.equals( expected ) || !order.equals( new ArrayList<>( expected.keySet( ) ) ) )
+            System.out.println( "ForEach error!" );
+
+            // Sorted keys still give a balanced tree
+        BinarySearchTreeMap<Integer, String> sorted = new BinarySearchTreeMap<>( );
+        for( int i = 0; i < NUMS; i++ )
+            sorted.computeIfAbsent( i, String::valueOf );
+        if( sorted.size( ) != NUMS || height( sorted.root ) > 1.44 * Math.log( NUMS + 2 ) / Math.log( 2 )
+                || !"17".equals( sorted.get( 17 ) ) )
+            System.out.println( "Balance error!" );
+
+            // Removing a key with two children moves its successor's node up whole
+        for( int i = 0; i < NUMS / 2; i++ )
+        {
+            BinaryNode<Integer, String> top = sorted.root;     // Has two children while the map is this large
+            BinaryNode<Integer, String> next = top.right;
+            while( next.left != null )
+                next = next.left;
+            sorted.remove( top.key );
+            if( sorted.descend( next.key ) != next || !next.value.equals( String.valueOf( next.key ) ) )
+                System.out.println( "Unlink error!" );
+        }
+        if( sorted.size( ) != NUMS - NUMS / 2 || !balanced( sorted.root ) )
+            System.out.println( "Unlink error!" );
+
+            // A counter per key costs one descent per update
+        BinarySearchTreeMap<String, Integer> counts = new BinarySearchTreeMap<>( );
+        for( String word : "the cat and the hat and the bat".split( " " ) )
+            counts.merge( word, 1, Integer::sum );
+        if( counts.get( "the" ) != 3 || counts.get( "and" ) != 2 || counts.get( "cat" ) != 1 || counts.size( ) != 5 )
+            System.out.println( "Counter error!" );
+
+            // Adding a key compares it only with the nodes on its path
+        BinarySearchTreeMap<CountedKey, Integer> counted = new BinarySearchTreeMap<>( );
+        for( int i = 0; i < NUMS; i++ )
+        {
+            long before = CountedKey.compares;
+            int bound = height( counted.root ) + 1;    // Nodes on the longest path
+            counted.merge( new CountedKey( random.nextInt( ) ), 1, Integer::sum );
+            if( CountedKey.compares - before > bound || ( i == 1 && CountedKey.compares - before != 1 ) )
+                System.out.println( "Compare count error!" );
+        }
+
+        counts.makeEmpty( );
+        if( !counts.isEmpty( ) || counts.size( ) != 0 || counts.get( "the" ) != null )
+            System.out.println( "MakeEmpty error!" );
+        try
+        {
+            counts.put( "x", null );
+            System.out.println( "Null value error!" );
+        }
+        catch( NullPointerException e )
+        {
+        }
+    }
+
+    // A key that counts its compareTo calls, for the test program
+    private static class CountedKey implements Comparable<CountedKey>
+    {
+        CountedKey( int theValue )
+        {
+            value = theValue;
+        }
+
+        public int compareTo( CountedKey other )
+        {
+            compares++;
+            return Integer.compare( value, other.value );
+        }
+
+        static long compares;
+        final int value;
+    }
+}
@@ -0,0 +1,738 @@
+package bst;
+
+// ConcurrentBinarySearchTree class
+//
+// CONSTRUCTION: with no initializer
+//
+// ******************PUBLIC OPERATIONS*********************
+// boolean insert( x )    --> Insert x; return true if it was absent
+// boolean remove( x )    --> Remove x; return true if it was present
+// boolean contains( x )  --> Return true if x is present
+// Comparable findMin( )  --> Return smallest item
+// Comparable findMax( )  --> Return largest item
+// boolean isEmpty( )     --> Return true if empty; else false
+// void makeEmpty( )      --> Remove all items
+// ******************ERRORS********************************
+// Throws UnderflowException as appropriate
+// ******************CONCURRENCY***************************
+// All operations may be called from any number of threads.
+// contains never blocks; insert, remove and makeEmpty lock
+// hand-over-hand down the search path, so writers in disjoint
+// subtrees only contend near the root. findMin, findMax and
+// isEmpty scan without locks, retrying if a writer changes a node
+// the scan passed, and lock just the nodes they pass if writers
+// keep doing so.
+
+//importing the per-node locks and the types used by the stress test
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.HashSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implements an unbalanced binary search tree that is safe for
+ * concurrent use without a global lock.
+ * Readers traverse volatile links and take no locks. Writers lock a
+ * parent and then its child before releasing the parent, so they never
+ * follow a link out of a node that another writer is changing.
+ * A removed node with two children stays in the tree as a marked
+ * routing node, and is unlinked by a later writer once it has at most
+ * one child; this way no element ever moves between nodes, and a
+ * reader can never miss an item that was present throughout its search.
+ * Finding the smallest or largest item means scanning past marked
+ * nodes, which no single search can do safely while writers run, so
+ * each writer bumps a version stamp on the nodes it changes, and a
+ * scan that passed a changed node is retried; see firstLive.
+ * Note that all "matching" is based on the compareTo method.
+ */
+public class ConcurrentBinarySearchTree<AnyType extends Comparable<? super AnyType>>
+{
+    /**
+     * Construct the tree.
+     */
+    public ConcurrentBinarySearchTree( )
+    {
+        head = new BinaryNode<>( null );
+    }
+
+    /**
+     * Insert into the tree; duplicates are ignored.
+     * @param x the item to insert.
+     * @return true if x was not already present.
+     */
+    public boolean insert( AnyType x )
+    {
+        BinaryNode<AnyType> parent = head;
+        parent.lock( );
+        try
+        {
+            for( ; ; )
+            {
+                int compareResult = compare( x, parent );
+                BinaryNode<AnyType> t = ( compareResult < 0 ) ? parent.left : parent.right;
+
+                if( t == null )
+                {
+                    parent.beginChange( );
+                    if( compareResult < 0 )
+                        parent.left = new BinaryNode<>( x );
+                    else
+                        parent.right = new BinaryNode<>( x );
+                    parent.endChange( );
+                    return true;
+                }
+
+                t.lock( );
+                if( x.compareTo( t.element ) == 0 )
+                {
+                    boolean wasDeleted = t.deleted;
+                    if( wasDeleted )
+                    {
+                        t.beginChange( );
+                        t.deleted = false;     // Revive a marked node in place
+                        t.endChange( );
+                    }
+                    t.unlock( );
+                    return wasDeleted;
+                }
+                t = unlinkIfRemoved( parent, compareResult, t );
+                if( t == null )
+                    continue;   // Parent is still locked; look again
+                parent.unlock( );
+                parent = t;
+            }
+        }
+        finally
+        {
+            parent.unlock( );
+        }
+    }
+
+    /**
+     * Remove from the tree. Nothing is done if x is not found.
+     * @param x the item to remove.
+     * @return true if x was present.
+     */
+    public boolean remove( AnyType x )
+    {
+        BinaryNode<AnyType> parent = head;
+        parent.lock( );
+        try
+        {
+            for( ; ; )
+            {
+                int compareResult = compare( x, parent );
+                BinaryNode<AnyType> t = ( compareResult < 0 ) ? parent.left : parent.right;
+
+                if( t == null )
+                    return false;   // Item not found; do nothing
+
+                t.lock( );
+                if( x.compareTo( t.element ) == 0 )
+                {
+                    boolean wasPresent = !t.deleted;
+                    if( wasPresent )
+                    {
+                        t.beginChange( );
+                        t.deleted = true;
+                        t.endChange( );
+                    }
+                    if( unlinkIfRemoved( parent, compareResult, t ) != null )
+                        t.unlock( );
+                    return wasPresent;
+                }
+                t = unlinkIfRemoved( parent, compareResult, t );
+                if( t == null )
+                    continue;   // Parent is still locked; look again
+                parent.unlock( );
+                parent = t;
+            }
+        }
+        finally
+        {
+            parent.unlock( );
+        }
+    }
+
+    /**
+     * Find an item in the tree. Never blocks.
+     * @param x the item to search for.
+     * @return true if found.
+     */
+    public boolean contains( AnyType x )
+    {
+        BinaryNode<AnyType> t = head.right;
+
+        while( t != null )
+        {
+            int compareResult = x.compareTo( t.element );
+
+            if( compareResult < 0 )
+                t = t.left;
+            else if( compareResult > 0 )
+                t = t.right;
+            else
+                return !t.deleted;    // Match
+        }
+        return false;
+    }
+
+    /**
+     * Find the smallest item in the tree. Blocks only if writers keep changing
+     * the nodes it passes, and then only on those nodes; see firstLive.
+     * @return smallest item.
+     * @throws UnderflowException if the tree is empty.
+     */
+    public AnyType findMin( )
+    {
+        BinaryNode<AnyType> t = firstLive( true );
+        if( t == null )
+            throw new UnderflowException( );
+        return t.element;
+    }
+
+    /**
+     * Find the largest item in the tree. Blocks only if writers keep changing
+     * the nodes it passes, and then only on those nodes; see firstLive.
+     * @return largest item.
+     * @throws UnderflowException if the tree is empty.
+     */
+    public AnyType findMax( )
+    {
+        BinaryNode<AnyType> t = firstLive( false );
+        if( t == null )
+            throw new UnderflowException( );
+        return t.element;
+    }
+
+    /**
+     * Test if the tree is logically empty. Blocks only if writers keep changing
+     * the nodes it passes, and then only on those nodes; see firstLive.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( )
+    {
+        return firstLive( true ) == null;
+    }
+
+    /**
+     * Make the tree logically empty.
+     * Writers already past the root when this runs finish on the
+     * discarded nodes, as if they had completed just before it.
+     */
+    public void makeEmpty( )
+    {
+        head.lock( );
+        timesEmptied++;     // Counted before the nodes are cut loose; see lockedScan
+        head.beginChange( );
+        head.right = null;
+        head.endChange( );
+        head.unlock( );
+    }
+
+    /**
+     * Internal method to compare an item with a node on the search path.
+     * The head sentinel is smaller than every item.
+     * @return negative, zero or positive as x is below, at or above t.
+     */
+    private int compare( AnyType x, BinaryNode<AnyType> t )
+    {
+        return t == head ? 1 : x.compareTo( t.element );
+    }
+
+    /**
+     * Internal method to splice out a marked node that has at most one
+     * child. Both parent and t must be locked by the caller.
+     * @param parent the parent of t.
+     * @param compareResult which side of parent t hangs from.
+     * @param t the child to check.
+     * @return t if it stays in the tree, or null after unlocking and unlinking it.
+     */
+    private BinaryNode<AnyType> unlinkIfRemoved( BinaryNode<AnyType> parent, int compareResult, BinaryNode<AnyType> t )
+    {
+        if( !t.deleted || ( t.left != null && t.right != null ) )
+            return t;
+
+        BinaryNode<AnyType> child = ( t.left != null ) ? t.left : t.right;
+        parent.beginChange( );
+        if( compareResult < 0 )
+            parent.left = child;
+        else
+            parent.right = child;
+        parent.endChange( );
+        t.unlock( );
+        return null;
+    }
+
+    /**
+     * Internal method to find the first unmarked node in sorted order,
+     * scanning from the smallest or the largest end.
+     * The scan reads one node at a time, so a writer that runs during it
+     * could make it see a mix of states the tree was never in, such as
+     * every node marked while some item was present throughout. Each
+     * node's version stamp is read before its links and mark, and the
+     * scan is only trusted if every node it passed still has the same
+     * even stamp afterwards; those nodes, and so every item up to the
+     * answer, were then unchanged at one moment of the scan. Writers
+     * elsewhere in the tree never cause a retry. After OPTIMISTIC_SCANS
+     * failed scans, lockedScan is used, so a scan cannot starve.
+     * A scan takes time linear in the marked nodes it passes, which
+     * routing nodes can make large.
+     * @param fromSmallest true to scan in increasing order.
+     * @return the node, or null if every node is marked.
+     */
+    private BinaryNode<AnyType> firstLive( boolean fromSmallest )
+    {
+        ScanRecord<AnyType> seen = new ScanRecord<>( );
+        for( int attempt = 0; attempt < OPTIMISTIC_SCANS; attempt++ )
+        {
+            seen.clear( );
+            BinaryNode<AnyType> t = scan( fromSmallest, seen );
+            if( seen.unchanged( ) )
+                return t;
+        }
+        return lockedScan( fromSmallest );
+    }
+
+    /**
+     * Internal method to scan for the first unmarked node in sorted
+     * order, recording the stamp of each node before reading it.
+     * @param fromSmallest true to scan in increasing order.
+     * @param seen receives every node passed, including head.
+     * @return the node, or null if every node seen was marked.
+     */
+    private BinaryNode<AnyType> scan( boolean fromSmallest, ScanRecord<AnyType> seen )
+    {
+        ArrayDeque<BinaryNode<AnyType>> stack = new ArrayDeque<>( );
+        seen.add( head );
+        BinaryNode<AnyType> t = head.right;
+
+        while( t != null || !stack.isEmpty( ) )
+        {
+            if( t != null )
+            {
+                seen.add( t );
+                stack.push( t );
+                t = fromSmallest ? t.left : t.right;
+            }
+            else
+            {
+                t = stack.pop( );
+                if( !t.deleted )
+                    return t;
+                t = fromSmallest ? t.right : t.left;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Internal method to find the first unmarked node in sorted order
+     * while holding the locks of the nodes passed, so no writer can
+     * change them under the scan.
+     * The scan walks down the edge of the tree hand-over-hand, as a
+     * writer would, and holds locks only from some node on that edge
+     * down; every item outside that node's subtree comes after every
+     * item inside it. It starts as deep on the edge as it can, and if
+     * the whole subtree is marked, tries again from a node nearer the
+     * root. Writers outside the held subtree are never held up, and the
+     * root is only held if no deeper subtree has an item.
+     * Locks are always taken parent first, as writers take them.
+     * @param fromSmallest true to scan in increasing order.
+     * @return the node, or null if every node is marked.
+     */
+    private BinaryNode<AnyType> lockedScan( boolean fromSmallest )
+    {
+        for( int levels = Integer.MAX_VALUE; ; )
+        {
+            long emptied = timesEmptied;
+            head.lock( );
+            BinaryNode<AnyType> top = head.right;
+            if( top == null )
+            {
+                head.unlock( );
+                return null;
+            }
+            top.lock( );
+            head.unlock( );
+
+            int depth = 0;
+            for( BinaryNode<AnyType> next; depth < levels && ( next = fromSmallest ? top.left : top.right ) != null; depth++ )
+            {
+                next.lock( );
+                top.unlock( );
+                top = next;
+            }
+
+            List<BinaryNode<AnyType>> held = new ArrayList<>( );
+            ArrayDeque<BinaryNode<AnyType>> stack = new ArrayDeque<>( );
+            BinaryNode<AnyType> found = null;
+            held.add( top );
+            stack.push( top );
+            BinaryNode<AnyType> t = fromSmallest ? top.left : top.right;
+            while( t != null || !stack.isEmpty( ) )
+            {
+                if( t != null )
+                {
+                    t.lock( );
+                    held.add( t );
+                    stack.push( t );
+                    t = fromSmallest ? t.left : t.right;
+                }
+                else
+                {
+                    t = stack.pop( );
+                    if( !t.deleted )
+                    {
+                        found = t;
+                        break;
+                    }
+                    t = fromSmallest ? t.right : t.left;
+                }
+            }
+
+                // makeEmpty counts itself before cutting the nodes loose, so
+                // if it has not, the held nodes are still in the tree
+            boolean cutLoose = timesEmptied != emptied;
+            for( BinaryNode<AnyType> h : held )
+                h.unlock( );
+
+            if( cutLoose )
+            {
+                    // Wait for makeEmpty to finish; the tree was empty just before it did
+                head.lock( );
+                head.unlock( );
+                return null;
+            }
+            if( found != null || depth == 0 )
+                return found;
+            levels = depth / 2;
+        }
+    }
+
+    // The nodes a scan passed, each with the stamp read before its fields
+    private static class ScanRecord<AnyType>
+    {
+        void clear( )
+        {
+            size = 0;
+        }
+
+        void add( BinaryNode<AnyType> t )
+        {
+            long version = t.version;
+            if( size == versions.length )
+                versions = Arrays.copyOf( versions, 2 * size );
+            if( size == nodes.size( ) )
+                nodes.add( t );
+            else
+                nodes.set( size, t );
+            versions[ size++ ] = version;
+        }
+
+            // True if no node was being changed when read or has changed since
+        boolean unchanged( )
+        {
+            for( int i = 0; i < size; i++ )
+                if( ( versions[ i ] & 1 ) != 0 || nodes.get( i ).version != versions[ i ] )
+                    return false;
+            return true;
+        }
+
+        private final List<BinaryNode<AnyType>> nodes = new ArrayList<>( );
+        private long [ ] versions = new long[ 16 ];
+        private int size;
+    }
+
+    // Node of a concurrent tree; its own lock guards its links and mark
+    @SuppressWarnings( "serial" )     // Serializable only through ReentrantLock; never serialized
+    private static class BinaryNode<AnyType> extends ReentrantLock
+    {
+            // Constructor
+        BinaryNode( AnyType theElement )
+        {
+            element = theElement;
+        }
+
+        final AnyType element;               // The data in the node
+        volatile BinaryNode<AnyType> left;   // Left child
+        volatile BinaryNode<AnyType> right;  // Right child
+        volatile boolean deleted;            // True once removed
+        volatile long version;               // Odd while a writer changes the fields above
+
+            // Bracket a change to the links or mark; the node must be locked
+        void beginChange( )
+        {
+            version++;
+        }
+
+        void endChange( )
+        {
+            version++;
+        }
+    }
+
+      /** Sentinel whose right child is the tree root, so the root has a parent to lock. */
+    private final BinaryNode<AnyType> head;
+
+      /** Calls to makeEmpty so far; written only with head locked. */
+    private volatile long timesEmptied;
+
+    private static final int OPTIMISTIC_SCANS = 4;
+
+
+        // Test program: a linearizability stress test
+    public static void main( String [ ] args ) throws Exception
+    {
+        final int THREADS = 4;
+        final int KEYS    = 8;
+        final int OPS     = 6;
+        final int ROUNDS  = 5000;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+        Random seeds = new Random( 37 );
+        for( int round = 0; round < ROUNDS; round++ )
+        {
+                // Start each round from a random set that every thread can see
+            ConcurrentBinarySearchTree<Integer> t = new ConcurrentBinarySearchTree<>( );
+            boolean [ ] initial = new boolean[ KEYS ];
+            for( int k = 0; k < KEYS; k++ )
+            {
+                initial[ k ] = seeds.nextBoolean( );
+                if( initial[ k ] )
+                    t.insert( k );
+            }
+
+            CyclicBarrier start = new CyclicBarrier( THREADS );
+            List<List<Operation>> histories = new ArrayList<>( );
+            Thread [ ] workers = new Thread[ THREADS ];
+            for( int w = 0; w < THREADS; w++ )
+            {
+                List<Operation> history = new ArrayList<>( );
+                histories.add( history );
+                Random random = new Random( seeds.nextLong( ) );
+                workers[ w ] = new Thread( ( ) -> {
+                    try
+                    {
+                        start.await( );
+                    }
+                    catch( Exception e )
+                    {
+                        throw new RuntimeException( e );
+                    }
+                    for( int i = 0; i < OPS; i++ )
+                    {
+                        Operation op = new Operation( random.nextInt( Operation.KINDS ), random.nextInt( KEYS ) );
+                        op.start = System.nanoTime( );
+                        op.result = op.apply( t );
+                        op.end = System.nanoTime( );
+                        history.add( op );
+                    }
+                } );
+                workers[ w ].start( );
+            }
+            for( Thread worker : workers )
+                worker.join( );
+
+                // findMin, findMax and isEmpty see every key at once, so check the whole set
+            int initialSet = 0;
+            for( int k = 0; k < KEYS; k++ )
+                if( initial[ k ] )
+                    initialSet |= 1 << k;
+            if( !linearizable( histories, new int[ THREADS ], initialSet, new HashSet<>( ) ) )
+                System.out.println( "Linearizability error in round " + round + "!" );
+
+            boolean anyLeft = false;
+            for( int k = 0; k < KEYS; k++ )
+                anyLeft |= t.contains( k );
+            if( t.isEmpty( ) == anyLeft )
+                System.out.println( "isEmpty error!" );
+            if( anyLeft && ( !t.contains( t.findMin( ) ) || !t.contains( t.findMax( ) ) || t.findMin( ) > t.findMax( ) ) )
+                System.out.println( "FindMin or FindMax error!" );
+        }
+
+            // Writers churn the smallest keys while findMin runs over and
+            // over; every writer must keep getting through meanwhile
+        ConcurrentBinarySearchTree<Integer> churned = new ConcurrentBinarySearchTree<>( );
+        for( int k = 0; k < 1000; k++ )
+            churned.insert( k );
+        AtomicLongArray progress = new AtomicLongArray( THREADS + 1 );   // Last slot stops them
+        Thread [ ] churners = new Thread[ THREADS ];
+        for( int w = 0; w < THREADS; w++ )
+        {
+            final int slot = w;
+            Random random = new Random( seeds.nextLong( ) );
+            churners[ w ] = new Thread( ( ) -> {
+                for( long done = 1; progress.get( THREADS ) == 0; done++ )
+                {
+                    int k = random.nextInt( 16 );
+                    if( random.nextBoolean( ) )
+                        churned.insert( k );
+                    else
+                        churned.remove( k );
+                    progress.lazySet( slot, done );
+                }
+            } );
+            churners[ w ].start( );
+        }
+        for( int stretch = 0; stretch < 10; stretch++ )
+        {
+            long [ ] before = new long[ THREADS ];
+            for( int w = 0; w < THREADS; w++ )
+                before[ w ] = progress.get( w );
+            long deadline = System.nanoTime( ) + 50_000_000L;
+            while( System.nanoTime( ) < deadline )
+                if( churned.findMin( ) > 16 )   // 16 and up are never removed
+                    System.out.println( "FindMin error under churn!" );
+            for( int w = 0; w < THREADS; w++ )
+                if( progress.get( w ) == before[ w ] )
+                    System.out.println( "Writer " + w + " stalled behind findMin!" );
+        }
+        progress.set( THREADS, 1 );
+        for( Thread churner : churners )
+            churner.join( );
+
+            // Many writers on disjoint keys, then check nothing was lost
+        ConcurrentBinarySearchTree<Integer> t = new ConcurrentBinarySearchTree<>( );
+        final int NUMS = 40000;
+        Thread [ ] writers = new Thread[ THREADS ];
+        for( int w = 0; w < THREADS; w++ )
+        {
+            final int first = w;
+            writers[ w ] = new Thread( ( ) -> {
+                for( int i = first; i < NUMS; i += THREADS )
+                    t.insert( ( i * 37 ) % NUMS );
+                for( int i = first; i < NUMS; i += 2 * THREADS )
+                    t.remove( ( i * 37 ) % NUMS );
+            } );
+            writers[ w ].start( );
+        }
+        for( Thread writer : writers )
+            writer.join( );
+        for( int i = 0; i < NUMS; i++ )
+            if( t.contains( ( i * 37 ) % NUMS ) != ( i % ( 2 * THREADS ) >= THREADS ) )
+                System.out.println( "Find error!" );
+    }
+
+    // Checks whether some order of the operations that respects real time
+    // gives each its observed result, by trying every minimal operation
+    // first. done[ w ] counts the operations of thread w already placed,
+    // set holds one bit per key, and failed remembers states already
+    // shown to lead nowhere, which keeps the search small.
+    private static boolean linearizable( List<List<Operation>> histories, int [ ] done, int set, HashSet<Long> failed )
+    {
+        long state = set;
+        boolean allDone = true;
+        for( int w = 0; w < histories.size( ); w++ )
+        {
+            state = state * 64 + done[ w ];
+            allDone &= done[ w ] == histories.get( w ).size( );
+        }
+        if( allDone )
+            return true;
+        if( failed.contains( state ) )
+            return false;
+
+        for( int w = 0; w < histories.size( ); w++ )
+        {
+            if( done[ w ] == histories.get( w ).size( ) )
+                continue;
+
+                // A thread's next operation may go next only if no other
+                // thread's next operation ended before it started
+            Operation op = histories.get( w ).get( done[ w ] );
+            boolean minimal = true;
+            for( int v = 0; v < histories.size( ) && minimal; v++ )
+                if( done[ v ] < histories.get( v ).size( ) && histories.get( v ).get( done[ v ] ).end < op.start )
+                    minimal = false;
+            if( !minimal || op.result != op.expected( set ) )
+                continue;
+
+            done[ w ]++;
+            boolean ok = linearizable( histories, done, op.after( set ), failed );
+            done[ w ]--;
+            if( ok )
+                return true;
+        }
+        failed.add( state );
+        return false;
+    }
+
+    // One timed call made by the stress test; results are ints, with
+    // booleans as 0 or 1 and an empty findMin or findMax as -1
+    private static class Operation
+    {
+        static final int INSERT   = 0;
+        static final int REMOVE   = 1;
+        static final int CONTAINS = 2;
+        static final int FIND_MIN = 3;
+        static final int FIND_MAX = 4;
+        static final int IS_EMPTY = 5;
+        static final int KINDS    = 6;
+
+        Operation( int kind, int key )
+        {
+            this.kind = kind;
+            this.key  = key;
+        }
+
+            // Make the call on the tree
+        int apply( ConcurrentBinarySearchTree<Integer> t )
+        {
+            try
+            {
+                switch( kind )
+                {
+                  case INSERT:   return t.insert( key ) ? 1 : 0;
+                  case REMOVE:   return t.remove( key ) ? 1 : 0;
+                  case CONTAINS: return t.contains( key ) ? 1 : 0;
+                  case FIND_MIN: return t.findMin( );
+                  case FIND_MAX: return t.findMax( );
+                  default:       return t.isEmpty( ) ? 1 : 0;
+                }
+            }
+            catch( UnderflowException e )
+            {
+                return -1;
+            }
+        }
+
+            // The result the call must give on a set of keys, one bit each
+        int expected( int set )
+        {
+            boolean present = ( set & 1 << key ) != 0;
+            switch( kind )
+            {
+              case INSERT:   return present ? 0 : 1;
+              case REMOVE:
+              case CONTAINS: return present ? 1 : 0;
+              case FIND_MIN: return ( set == 0 ) ? -1 : Integer.numberOfTrailingZeros( set );
+              case FIND_MAX: return ( set == 0 ) ? -1 : 31 - Integer.numberOfLeadingZeros( set );
+              default:       return ( set == 0 ) ? 1 : 0;
+            }
+        }
+
+            // The set after the call
+        int after( int set )
+        {
+            switch( kind )
+            {
+              case INSERT: return set | 1 << key;
+              case REMOVE: return set & ~( 1 << key );
+              default:     return set;
+            }
+        }
+
+        final int kind;
+        final int key;
+        long start;
+        long end;
+        int result;
+    }
+}
@@ -0,0 +1,231 @@
+package bst;
+
+// FrozenBinarySearchTree class
+//
+// CONSTRUCTION: by BinarySearchTree.freeze( )
+//
+// ******************PUBLIC OPERATIONS*********************
+// boolean contains( x )  --> Return true if x is present
+// Comparable ceiling( x ) --> Return smallest item >= x, or null
+// Comparable findMin( )  --> Return smallest item
+// Comparable findMax( )  --> Return largest item
+// int nodeCount( )       --> Return number of items
+// boolean isEmpty( )     --> Return true if empty; else false
+// ******************ERRORS********************************
+// Throws UnderflowException as appropriate
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Implements a read-only binary search tree held in one array in
+ * breadth-first (Eytzinger) order: the root is at index 1 and the
+ * children of index k are at 2k and 2k + 1, so there are no child
+ * links to follow. The top levels of the tree share a few cache lines
+ * and stay cached across searches, and every search walks the same
+ * index arithmetic; the only branch per level is the loop test, since
+ * the comparison is turned into the low bit of the next index.
+ * Note that all "matching" is based on the compareTo method.
+ */
+public class FrozenBinarySearchTree<AnyType extends Comparable<? super AnyType>>
+{
+    /**
+     * Construct the tree from items in ascending order, without duplicates.
+     * @param items the items, in ascending order.
+     * @param n the number of items.
+     */
+    FrozenBinarySearchTree( Iterator<? extends AnyType> items, int n )
+    {
+        if( n > MAX_NODES )
+            throw new IllegalArgumentException( "Too many items to freeze: " + n );
+        size = n;
+        array = new Object[ n + 1 ];
+
+            // In-order walk of the implicit tree, starting at its leftmost index
+        int k = 1;
+        while( k <= n >> 1 )
+            k <<= 1;
+        for( int i = 0; i < n; i++ )
+        {
+            array[ k ] = items.next( );
+            if( k <= ( n - 1 ) >> 1 )        // Right child: its leftmost descendant is next
+            {
+                k = 2 * k + 1;
+                while( k <= n >> 1 )
+                    k <<= 1;
+            }
+            else                             // Climb past the right children, then once more
+                k >>= Integer.numberOfTrailingZeros( ~k ) + 1;
+        }
+    }
+
+    /**
+     * Find an item in the tree.
+     * @param x the item to search for.
+     * @return true if found.
+     */
+    public boolean contains( AnyType x )
+    {
+        int k = lowerBound( x );
+        return k != 0 && x.compareTo( elementAt( k ) ) == 0;
+    }
+
+    /**
+     * Find the smallest item greater than or equal to x.
+     * @param x the item to search for.
+     * @return the item, or null if every item is less than x.
+     */
+    public AnyType ceiling( AnyType x )
+    {
+        int k = lowerBound( x );
+        return k == 0 ? null : elementAt( k );
+    }
+
+    /**
+     * Find the smallest item in the tree.
+     * @return smallest item.
+     * @throws UnderflowException if the tree is empty.
+     */
+    public AnyType findMin( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+
+        int k = 1;
+        while( k <= size >> 1 )
+            k <<= 1;
+        return elementAt( k );
+    }
+
+    /**
+     * Find the largest item in the tree.
+     * @return largest item.
+     * @throws UnderflowException if the tree is empty.
+     */
+    public AnyType findMax( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+
+        int k = 1;
+        while( k <= ( size - 1 ) >> 1 )
+            k = 2 * k + 1;
+        return elementAt( k );
+    }
+
+    /**
+     * Return the number of items in the tree.
+     */
+    public int nodeCount( )
+    {
+        return size;
+    }
+
+    /**
+     * Test if the tree is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( )
+    {
+        return size == 0;
+    }
+
+    /**
+     * Internal method to find the index of the smallest item >= x.
+     * The search always runs to a leaf, stepping right exactly when the
+     * item at k is less than x. The last left step was taken at the
+     * answer, and the right steps after it are the trailing 1 bits of
+     * the final index, so shifting them and that step off recovers it.
+     * @param x the item to search for.
+     * @return the index, or 0 if every item is less than x.
+     */
+    private int lowerBound( AnyType x )
+    {
+        int k = 1;
+        while( k <= size )
+            k = 2 * k + ( elementAt( k ).compareTo( x ) >>> 31 );
+        return k >> ( Integer.numberOfTrailingZeros( ~k ) + 1 );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private AnyType elementAt( int k )
+    {
+        return (AnyType) array[ k ];
+    }
+
+      /** Largest size for which 2 * size + 1, the last index a search reaches, is an int. */
+    private static final int MAX_NODES = ( Integer.MAX_VALUE - 1 ) / 2;
+
+      /** The items in breadth-first order, from index 1; index 0 is unused. */
+    private final Object [ ] array;
+      /** Number of items in the tree. */
+    private final int size;
+
+
+        // Test program
+    public static void main( String [ ] args )
+    {
+        final int NUMS = 4000;
+        final int GAP  =   37;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+            // Every small size, so each shape of last level is covered
+        Random random = new Random( GAP );
+        List<Integer> evens = new ArrayList<>( );
+        for( int n = 0; n <= 70; n++ )
+        {
+            if( n > 0 )
+                evens.add( 2 * ( n - 1 ) );
+            Collections.shuffle( evens, random );
+            BinarySearchTree<Integer> t = new BinarySearchTree<>( );
+            for( int x : evens )
+                t.insert( x );
+            FrozenBinarySearchTree<Integer> f = t.freeze( );
+
+            if( f.nodeCount( ) != n || f.isEmpty( ) != ( n == 0 ) )
+                System.out.println( "Freeze size error!" );
+            if( n > 0 && ( f.findMin( ) != 0 || f.findMax( ) != 2 * ( n - 1 ) ) )
+                System.out.println( "FindMin or FindMax error!" );
+            for( int x = -1; x <= 2 * n; x++ )
+            {
+                if( f.contains( x ) != ( x >= 0 && x % 2 == 0 && x < 2 * n ) )
+                    System.out.println( "Find error!" );
+                if( !Objects.equals( f.ceiling( x ), t.ceiling( x ) ) )
+                    System.out.println( "Ceiling error!" );
+            }
+        }
+
+            // Random items agree with TreeSet
+        BinarySearchTree<Integer> t = new BinarySearchTree<>( BinarySearchTree.BalanceMode.AVL );
+        TreeSet<Integer> expected = new TreeSet<>( );
+        for( int i = 0; i < NUMS; i++ )
+        {
+            int x = random.nextInt( NUMS * 4 ) - NUMS * 2;
+            t.insert( x );
+            expected.add( x );
+        }
+        FrozenBinarySearchTree<Integer> f = t.freeze( );
+        t.makeEmpty( );
+        for( int x = -NUMS * 2 - 1; x <= NUMS * 2; x++ )
+            if( f.contains( x ) != expected.contains( x ) || !Objects.equals( f.ceiling( x ), expected.ceiling( x ) ) )
+                System.out.println( "Random freeze error!" );
+        if( f.nodeCount( ) != expected.size( ) || !f.findMin( ).equals( expected.first( ) )
+                || !f.findMax( ).equals( expected.last( ) ) )
+            System.out.println( "Random freeze error!" );
+
+        try
+        {
+            new BinarySearchTree<Integer>( ).freeze( ).findMin( );
+            System.out.println( "Empty freeze error!" );
+        }
+        catch( UnderflowException e )
+        {
+        }
+    }
+}
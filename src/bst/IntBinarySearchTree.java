@@ -0,0 +1,335 @@
+package bst;
+
+// IntBinarySearchTree class
+//
+// CONSTRUCTION: with no initializer, or with an initial capacity
+//
+// ******************PUBLIC OPERATIONS*********************
+// void insert( x )       --> Insert x
+// void remove( x )       --> Remove x
+// boolean contains( x )  --> Return true if x is present
+// int findMin( )         --> Return smallest item
+// int findMax( )         --> Return largest item
+// int nodeCount( )       --> Return number of items
+// boolean isEmpty( )     --> Return true if empty; else false
+// void makeEmpty( )      --> Remove all items
+// ******************ERRORS********************************
+// Throws UnderflowException as appropriate
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Implements an unbalanced binary search tree of int keys.
+ * Nodes are slots in parallel arrays rather than objects: slot i holds
+ * keys[ i ] and the slots of its children in left[ i ] and right[ i ],
+ * so a node costs 12 bytes, keys are never boxed, and a search compares
+ * primitives while reading three arrays. Slots freed by remove are
+ * chained through left[ ] and reused by later inserts.
+ */
+public class IntBinarySearchTree
+{
+    /**
+     * Construct the tree.
+     */
+    public IntBinarySearchTree( )
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    /**
+     * Construct the tree with room for a number of nodes before it grows.
+     * @param capacity the initial number of node slots.
+     */
+    public IntBinarySearchTree( int capacity )
+    {
+        capacity = Math.max( capacity, 1 );
+        keys  = new int[ capacity ];
+        left  = new int[ capacity ];
+        right = new int[ capacity ];
+        makeEmpty( );
+    }
+
+    /**
+     * Insert into the tree; duplicates are ignored.
+     * @param x the item to insert.
+     */
+    public void insert( int x )
+    {
+        if( root == NIL )
+        {
+            root = allocate( x );
+            return;
+        }
+
+        int t = root;
+        for( ; ; )
+        {
+            if( x < keys[ t ] )
+            {
+                if( left[ t ] == NIL )
+                {
+                        // allocate may replace the arrays, so call it before indexing them
+                    int node = allocate( x );
+                    left[ t ] = node;
+                    return;
+                }
+                t = left[ t ];
+            }
+            else if( x > keys[ t ] )
+            {
+                if( right[ t ] == NIL )
+                {
+                    int node = allocate( x );
+                    right[ t ] = node;
+                    return;
+                }
+                t = right[ t ];
+            }
+            else
+                return;  // Duplicate; do nothing
+        }
+    }
+
+    /**
+     * Remove from the tree. Nothing is done if x is not found.
+     * @param x the item to remove.
+     */
+    public void remove( int x )
+    {
+        int parent = NIL;
+        int t = root;
+
+        while( t != NIL && keys[ t ] != x )
+        {
+            parent = t;
+            t = ( x < keys[ t ] ) ? left[ t ] : right[ t ];
+        }
+        if( t == NIL )
+            return;   // Item not found; do nothing
+
+        if( left[ t ] != NIL && right[ t ] != NIL ) // Two children
+        {
+                // Move the successor's key up, then unlink the successor
+            parent = t;
+            int min = right[ t ];
+            while( left[ min ] != NIL )
+            {
+                parent = min;
+                min = left[ min ];
+            }
+            keys[ t ] = keys[ min ];
+            t = min;
+        }
+
+        int child = ( left[ t ] != NIL ) ? left[ t ] : right[ t ];
+        if( parent == NIL )
+            root = child;
+        else if( left[ parent ] == t )
+            left[ parent ] = child;
+        else
+            right[ parent ] = child;
+        release( t );
+    }
+
+    /**
+     * Find an item in the tree.
+     * @param x the item to search for.
+     * @return true if found.
+     */
+    public boolean contains( int x )
+    {
+        int t = root;
+
+        while( t != NIL )
+        {
+            int key = keys[ t ];
+
+            if( x < key )
+                t = left[ t ];
+            else if( x > key )
+                t = right[ t ];
+            else
+                return true;    // Match
+        }
+        return false;
+    }
+
+    /**
+     * Find the smallest item in the tree.
+     * @return smallest item.
+     * @throws UnderflowException if the tree is empty.
+     */
+    public int findMin( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+
+        int t = root;
+        while( left[ t ] != NIL )
+            t = left[ t ];
+        return keys[ t ];
+    }
+
+    /**
+     * Find the largest item in the tree.
+     * @return largest item.
+     * @throws UnderflowException if the tree is empty.
+     */
+    public int findMax( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+
+        int t = root;
+        while( right[ t ] != NIL )
+            t = right[ t ];
+        return keys[ t ];
+    }
+
+    /**
+     * Return the number of items in the tree.
+     */
+    public int nodeCount( )
+    {
+        return size;
+    }
+
+    /**
+     * Test if the tree is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( )
+    {
+        return root == NIL;
+    }
+
+    /**
+     * Make the tree logically empty. The node arrays keep their capacity.
+     */
+    public void makeEmpty( )
+    {
+        root = NIL;
+        size = 0;
+        used = 0;
+        free = NIL;
+    }
+
+    /**
+     * Internal method to take a node slot, from the free list if it has
+     * one, and growing the arrays if every slot is in use.
+     * @param x the item to store.
+     * @return the slot, a leaf holding x.
+     */
+    private int allocate( int x )
+    {
+        int node;
+        if( free != NIL )
+        {
+            node = free;
+            free = left[ node ];
+        }
+        else
+        {
+            if( used == keys.length )
+            {
+                int capacity = keys.length + ( keys.length >> 1 ) + 1;
+                keys  = Arrays.copyOf( keys, capacity );
+                left  = Arrays.copyOf( left, capacity );
+                right = Arrays.copyOf( right, capacity );
+            }
+            node = used++;
+        }
+        keys[ node ]  = x;
+        left[ node ]  = NIL;
+        right[ node ] = NIL;
+        size++;
+        return node;
+    }
+
+    /**
+     * Internal method to put an unlinked node slot on the free list.
+     * @param node the slot.
+     */
+    private void release( int node )
+    {
+        left[ node ] = free;
+        free = node;
+        size--;
+    }
+
+    private static final int NIL = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+      /** The key of each node slot. */
+    private int [ ] keys;
+      /** The slot of each node's left child, or NIL; on the free list, the next free slot. */
+    private int [ ] left;
+      /** The slot of each node's right child, or NIL. */
+    private int [ ] right;
+
+      /** The slot of the tree root, or NIL. */
+    private int root;
+      /** Number of items in the tree. */
+    private int size;
+      /** Number of slots ever handed out; slots from here on are untouched. */
+    private int used;
+      /** First slot on the free list, or NIL. */
+    private int free;
+
+
+        // Test program
+    public static void main( String [ ] args )
+    {
+        IntBinarySearchTree t = new IntBinarySearchTree( );
+        final int NUMS = 4000;
+        final int GAP  =   37;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+            t.insert( i );
+
+        for( int i = 1; i < NUMS; i+= 2 )
+            t.remove( i );
+
+        if( t.findMin( ) != 2 || t.findMax( ) != ( NUMS - 2 ) )
+            System.out.println( "FindMin or FindMax error!" );
+
+        for( int i = 2; i < NUMS; i+=2 )
+             if( !t.contains( i ) )
+                 System.out.println( "Find error1!" );
+
+        for( int i = 1; i < NUMS; i+=2 )
+            if( t.contains( i ) )
+                System.out.println( "Find error2!" );
+
+            // Random operations agree with TreeSet, and freed slots get reused
+        IntBinarySearchTree r = new IntBinarySearchTree( );
+        TreeSet<Integer> expected = new TreeSet<>( );
+        Random random = new Random( GAP );
+        for( int i = 0; i < 100000; i++ )
+        {
+            int x = random.nextInt( NUMS ) - NUMS / 2;
+            if( random.nextBoolean( ) )
+            {
+                r.insert( x );
+                expected.add( x );
+            }
+            else
+            {
+                r.remove( x );
+                expected.remove( x );
+            }
+            if( r.contains( x ) != expected.contains( x ) || r.nodeCount( ) != expected.size( ) )
+                System.out.println( "Random operation error!" );
+        }
+        if( r.findMin( ) != expected.first( ) || r.findMax( ) != expected.last( ) || r.used > NUMS )
+            System.out.println( "Random operation error!" );
+
+        r.makeEmpty( );
+        if( !r.isEmpty( ) || r.nodeCount( ) != 0 || r.contains( 0 ) )
+            System.out.println( "MakeEmpty error!" );
+    }
+}
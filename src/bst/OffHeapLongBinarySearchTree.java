@@ -0,0 +1,595 @@
+package bst;
+
+// OffHeapLongBinarySearchTree class
+//
+// CONSTRUCTION: with no initializer, or by open( path )
+//
+// ******************PUBLIC OPERATIONS*********************
+// void insert( x )       --> Insert x
+// void remove( x )       --> Remove x
+// boolean contains( x )  --> Return true if x is present
+// long findMin( )        --> Return smallest item
+// long findMax( )        --> Return largest item
+// int nodeCount( )       --> Return number of items
+// boolean isEmpty( )     --> Return true if empty; else false
+// void makeEmpty( )      --> Remove all items
+// void save( path )      --> Write the tree to a file
+// static open( path )    --> Map a saved tree, ready for lookups at once
+// ******************ERRORS********************************
+// Throws UnderflowException as appropriate; IOException from save and open
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Implements an unbalanced binary search tree of long keys whose nodes
+ * live outside the Java heap.
+ * Like LongBinarySearchTree, a node is a numbered slot holding a key and
+ * the slots of its two children, but each slot is a 16-byte record in a
+ * direct ByteBuffer: the key at offset 0, the left child at 8 and the
+ * right child at 12. Records are grouped into fixed-size chunks, so the
+ * tree grows a chunk at a time without copying, is not limited to one
+ * 2 GB buffer, and the garbage collector only ever sees the chunk
+ * objects, however many nodes the tree holds.
+ * A saved tree is a header followed by the same records, so open maps
+ * the file chunk by chunk and searches it in place; the operating system
+ * pages nodes in as lookups reach them.
+ */
+public class OffHeapLongBinarySearchTree
+{
+    /**
+     * Construct the tree.
+     */
+    public OffHeapLongBinarySearchTree( )
+    {
+        chunks = new ByteBuffer[ 1 ];
+        makeEmpty( );
+    }
+
+    /**
+     * Insert into the tree; duplicates are ignored.
+     * @param x the item to insert.
+     */
+    public void insert( long x )
+    {
+        if( root == NIL )
+        {
+            root = allocate( x );
+            return;
+        }
+
+        int t = root;
+        for( ; ; )
+        {
+            long key = key( t );
+
+            if( x < key )
+            {
+                if( left( t ) == NIL )
+                {
+                    setLeft( t, allocate( x ) );
+                    return;
+                }
+                t = left( t );
+            }
+            else if( x > key )
+            {
+                if( right( t ) == NIL )
+                {
+                    setRight( t, allocate( x ) );
+                    return;
+                }
+                t = right( t );
+            }
+            else
+                return;  // Duplicate; do nothing
+        }
+    }
+
+    /**
+     * Remove from the tree. Nothing is done if x is not found.
+     * @param x the item to remove.
+     */
+    public void remove( long x )
+    {
+        int parent = NIL;
+        int t = root;
+
+        while( t != NIL && key( t ) != x )
+        {
+            parent = t;
+            t = ( x < key( t ) ) ? left( t ) : right( t );
+        }
+        if( t == NIL )
+            return;   // Item not found; do nothing
+
+        if( left( t ) != NIL && right( t ) != NIL ) // Two children
+        {
+                // Move the successor's key up, then unlink the successor
+            parent = t;
+            int min = right( t );
+            while( left( min ) != NIL )
+            {
+                parent = min;
+                min = left( min );
+            }
+            setKey( t, key( min ) );
+            t = min;
+        }
+
+        int child = ( left( t ) != NIL ) ? left( t ) : right( t );
+        if( parent == NIL )
+            root = child;
+        else if( left( parent ) == t )
+            setLeft( parent, child );
+        else
+            setRight( parent, child );
+        release( t );
+    }
+
+    /**
+     * Find an item in the tree.
+     * @param x the item to search for.
+     * @return true if found.
+     */
+    public boolean contains( long x )
+    {
+        int t = root;
+
+        while( t != NIL )
+        {
+            ByteBuffer chunk = chunks[ t >>> CHUNK_SHIFT ];
+            int offset = ( t & CHUNK_MASK ) * RECORD_BYTES;
+            long key = chunk.getLong( offset );
+
+            if( x < key )
+                t = chunk.getInt( offset + LEFT_OFFSET );
+            else if( x > key )
+                t = chunk.getInt( offset + RIGHT_OFFSET );
+            else
+                return true;    // Match
+        }
+        return false;
+    }
+
+    /**
+     * Find the smallest item in the tree.
+     * @return smallest item.
+     * @throws UnderflowException if the tree is empty.
+     */
+    public long findMin( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+
+        int t = root;
+        while( left( t ) != NIL )
+            t = left( t );
+        return key( t );
+    }
+
+    /**
+     * Find the largest item in the tree.
+     * @return largest item.
+     * @throws UnderflowException if the tree is empty.
+     */
+    public long findMax( )
+    {
+        if( isEmpty( ) )
+            throw new UnderflowException( );
+
+        int t = root;
+        while( right( t ) != NIL )
+            t = right( t );
+        return key( t );
+    }
+
+    /**
+     * Return the number of items in the tree.
+     */
+    public int nodeCount( )
+    {
+        return size;
+    }
+
+    /**
+     * Test if the tree is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( )
+    {
+        return root == NIL;
+    }
+
+    /**
+     * Make the tree logically empty. Chunks already allocated are kept.
+     */
+    public void makeEmpty( )
+    {
+        root = NIL;
+        size = 0;
+        used = 0;
+        free = NIL;
+    }
+
+    /**
+     * Write the tree to a file, replacing any file already there.
+     * Nodes are renumbered in preorder, so the root is slot 0, each left
+     * child directly follows its parent, and the free slots are dropped.
+     * The tree is written to a new file beside path, which is then moved
+     * over it, so a tree opened from path may be saved back to it, and
+     * a failed save leaves the old file whole.
+     * @param path the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save( Path path ) throws IOException
+    {
+        Path dir = path.toAbsolutePath( ).getParent( );
+        Path temp = Files.createTempFile( dir, path.getFileName( ).toString( ), ".tmp" );
+        try
+        {
+            write( temp );
+            try
+            {
+                Files.move( temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch( AtomicMoveNotSupportedException e )
+            {
+                Files.move( temp, path, StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( temp );
+        }
+    }
+
+    /**
+     * Internal method to write the tree to a new, empty file.
+     * @param path the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private void write( Path path ) throws IOException
+    {
+        try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+        {
+            OffHeapLongBinarySearchTree out = new OffHeapLongBinarySearchTree( );
+            out.chunks = mapChunks( channel, FileChannel.MapMode.READ_WRITE, size );
+
+            ByteBuffer header = channel.map( FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES ).order( ByteOrder.LITTLE_ENDIAN );
+            header.putInt( MAGIC ).putInt( VERSION ).putInt( size ).putInt( 0 );
+
+                // Preorder walk; the stack holds each pending right child
+                // and the new slot of the parent whose right link it fills
+            int [ ] stack = new int[ 32 ];
+            int top = 0;
+            int next = 0;
+            if( root != NIL )
+            {
+                stack[ top++ ] = root;
+                stack[ top++ ] = NIL;
+            }
+            while( top > 0 )
+            {
+                int parent = stack[ --top ];
+                int t = stack[ --top ];
+                if( parent != NIL )
+                    out.setRight( parent, next );
+                for( ; t != NIL; t = left( t ) )
+                {
+                    int slot = next++;
+                    out.setKey( slot, key( t ) );
+                    out.setLeft( slot, left( t ) != NIL ? slot + 1 : NIL );
+                    out.setRight( slot, NIL );
+                    if( right( t ) != NIL )
+                    {
+                        if( top == stack.length )
+                            stack = Arrays.copyOf( stack, stack.length * 2 );
+                        stack[ top++ ] = right( t );
+                        stack[ top++ ] = slot;
+                    }
+                }
+            }
+
+            for( ByteBuffer chunk : out.chunks )
+                if( chunk != null )   // An empty tree maps no chunks
+                    ( (MappedByteBuffer) chunk ).force( );
+            ( (MappedByteBuffer) header ).force( );
+        }
+    }
+
+    /**
+     * Open a tree saved by save. The file is mapped read-only, not read:
+     * lookups can start at once, and nodes are paged in as they are
+     * reached. The first change to a chunk copies it off the file, so
+     * changes never reach the file.
+     * @param path the file to open.
+     * @return the tree.
+     * @throws IOException if the file cannot be read or is not a saved tree.
+     */
+    public static OffHeapLongBinarySearchTree open( Path path ) throws IOException
+    {
+        try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+        {
+            if( channel.size( ) < HEADER_BYTES )
+                throw new IOException( path + " is not a saved tree" );
+            ByteBuffer header = channel.map( FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES ).order( ByteOrder.LITTLE_ENDIAN );
+            int size = header.getInt( 8 );
+            if( header.getInt( 0 ) != MAGIC || header.getInt( 4 ) != VERSION
+                    || channel.size( ) != HEADER_BYTES + (long) size * RECORD_BYTES )
+                throw new IOException( path + " is not a saved tree" );
+
+            OffHeapLongBinarySearchTree tree = new OffHeapLongBinarySearchTree( );
+            tree.chunks = mapChunks( channel, FileChannel.MapMode.READ_ONLY, size );
+            tree.size = size;
+            tree.used = size;
+            tree.root = ( size == 0 ) ? NIL : 0;
+            return tree;
+        }
+    }
+
+    /**
+     * Internal method to map the records of a saved tree, one chunk per
+     * region of the file; the last chunk covers only the records present.
+     * @param channel the file, positioned anywhere.
+     * @param mode how to map it.
+     * @param records the number of records in the file.
+     * @return the chunks, with at least one slot in the array.
+     */
+    private static ByteBuffer [ ] mapChunks( FileChannel channel, FileChannel.MapMode mode, int records ) throws IOException
+    {
+        int count = ( records + CHUNK_RECORDS - 1 ) >>> CHUNK_SHIFT;
+        ByteBuffer [ ] mapped = new ByteBuffer[ Math.max( count, 1 ) ];
+        for( int c = 0; c < count; c++ )
+        {
+            long first = (long) c << CHUNK_SHIFT;
+            long bytes = Math.min( CHUNK_RECORDS, records - first ) * RECORD_BYTES;
+            mapped[ c ] = channel.map( mode, HEADER_BYTES + first * RECORD_BYTES, bytes ).order( ByteOrder.LITTLE_ENDIAN );
+        }
+        return mapped;
+    }
+
+        // Record accessors; node is a slot number, never NIL
+    private long key( int node )
+    {
+        return chunks[ node >>> CHUNK_SHIFT ].getLong( ( node & CHUNK_MASK ) * RECORD_BYTES );
+    }
+
+    private int left( int node )
+    {
+        return chunks[ node >>> CHUNK_SHIFT ].getInt( ( node & CHUNK_MASK ) * RECORD_BYTES + LEFT_OFFSET );
+    }
+
+    private int right( int node )
+    {
+        return chunks[ node >>> CHUNK_SHIFT ].getInt( ( node & CHUNK_MASK ) * RECORD_BYTES + RIGHT_OFFSET );
+    }
+
+    private void setKey( int node, long x )
+    {
+        writableChunk( node ).putLong( ( node & CHUNK_MASK ) * RECORD_BYTES, x );
+    }
+
+    private void setLeft( int node, int child )
+    {
+        writableChunk( node ).putInt( ( node & CHUNK_MASK ) * RECORD_BYTES + LEFT_OFFSET, child );
+    }
+
+    private void setRight( int node, int child )
+    {
+        writableChunk( node ).putInt( ( node & CHUNK_MASK ) * RECORD_BYTES + RIGHT_OFFSET, child );
+    }
+
+    /**
+     * Internal method to get the chunk holding a slot, ready for writing.
+     * A chunk that does not exist yet is allocated; one still mapped
+     * read-only from a file is first copied into a full-size chunk.
+     * @param node the slot.
+     * @return the chunk.
+     */
+    private ByteBuffer writableChunk( int node )
+    {
+        int c = node >>> CHUNK_SHIFT;
+        ByteBuffer chunk = chunks[ c ];
+        if( chunk == null || chunk.isReadOnly( ) )
+        {
+            ByteBuffer full = ByteBuffer.allocateDirect( CHUNK_RECORDS * RECORD_BYTES ).order( ByteOrder.LITTLE_ENDIAN );
+            if( chunk != null )
+                full.put( (ByteBuffer) chunk.duplicate( ).clear( ) ).clear( );
+            chunks[ c ] = chunk = full;
+        }
+        return chunk;
+    }
+
+    /**
+     * Internal method to take a node slot, from the free list if it has
+     * one, and otherwise the next untouched slot; writing to it adds
+     * its chunk if needed.
+     * @param x the item to store.
+     * @return the slot, a leaf holding x.
+     */
+    private int allocate( long x )
+    {
+        int node;
+        if( free != NIL )
+        {
+            node = free;
+            free = left( node );
+        }
+        else
+        {
+            if( ( used >>> CHUNK_SHIFT ) == chunks.length )
+                chunks = Arrays.copyOf( chunks, chunks.length * 2 );
+            node = used++;
+        }
+        setKey( node, x );
+        setLeft( node, NIL );
+        setRight( node, NIL );
+        size++;
+        return node;
+    }
+
+    /**
+     * Internal method to put an unlinked node slot on the free list.
+     * @param node the slot.
+     */
+    private void release( int node )
+    {
+        setLeft( node, free );
+        free = node;
+        size--;
+    }
+
+    private static final int NIL = -1;
+
+    private static final int MAGIC         = 0x4C425354;  // "LBST"
+    private static final int VERSION       = 1;
+    private static final int HEADER_BYTES  = 16;           // magic, version, size, unused
+
+    private static final int RECORD_BYTES  = 16;
+    private static final int LEFT_OFFSET   = 8;
+    private static final int RIGHT_OFFSET  = 12;
+    private static final int CHUNK_SHIFT   = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;  // 1 MB per chunk
+    private static final int CHUNK_MASK    = CHUNK_RECORDS - 1;
+
+      /** The node records, CHUNK_RECORDS to a chunk; null past the last chunk in use. */
+    private ByteBuffer [ ] chunks;
+
+      /** The slot of the tree root, or NIL. */
+    private int root;
+      /** Number of items in the tree. */
+    private int size;
+      /** Number of slots ever handed out; slots from here on are untouched. */
+    private int used;
+      /** First slot on the free list, or NIL. */
+    private int free;
+
+
+        // Test program
+    public static void main( String [ ] args ) throws IOException
+    {
+        OffHeapLongBinarySearchTree t = new OffHeapLongBinarySearchTree( );
+        final int NUMS = 4000;
+        final int GAP  =   37;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+        for( int i = GAP; i != 0; i = ( i + GAP ) % NUMS )
+            t.insert( i * 1000000007L );
+
+        for( int i = 1; i < NUMS; i+= 2 )
+            t.remove( i * 1000000007L );
+
+        if( t.findMin( ) != 2 * 1000000007L || t.findMax( ) != ( NUMS - 2 ) * 1000000007L )
+            System.out.println( "FindMin or FindMax error!" );
+
+        for( int i = 2; i < NUMS; i+=2 )
+             if( !t.contains( i * 1000000007L ) )
+                 System.out.println( "Find error1!" );
+
+        for( int i = 1; i < NUMS; i+=2 )
+            if( t.contains( i * 1000000007L ) )
+                System.out.println( "Find error2!" );
+
+            // Random operations agree with TreeSet, and freed slots get reused
+        OffHeapLongBinarySearchTree r = new OffHeapLongBinarySearchTree( );
+        TreeSet<Long> expected = new TreeSet<>( );
+        Random random = new Random( GAP );
+        for( int i = 0; i < 100000; i++ )
+        {
+            long x = random.nextInt( NUMS ) - NUMS / 2;
+            if( random.nextBoolean( ) )
+            {
+                r.insert( x );
+                expected.add( x );
+            }
+            else
+            {
+                r.remove( x );
+                expected.remove( x );
+            }
+            if( r.contains( x ) != expected.contains( x ) || r.nodeCount( ) != expected.size( ) )
+                System.out.println( "Random operation error!" );
+        }
+        if( r.findMin( ) != expected.first( ) || r.findMax( ) != expected.last( ) || r.used > NUMS )
+            System.out.println( "Random operation error!" );
+
+            // Enough nodes to need several chunks
+        OffHeapLongBinarySearchTree big = new OffHeapLongBinarySearchTree( );
+        final int BIG = 3 * CHUNK_RECORDS + 5;
+        for( int i = 0; i < BIG; i++ )
+            big.insert( ( i * 0x9E3779B97F4A7C15L ) >>> 1 );
+        for( int i = 0; i < BIG; i++ )
+            if( !big.contains( ( i * 0x9E3779B97F4A7C15L ) >>> 1 ) )
+                System.out.println( "Chunk error!" );
+        if( big.nodeCount( ) != BIG || big.contains( 1 ) )
+            System.out.println( "Chunk error!" );
+
+            // Save and reopen; changes to the reopened tree stay out of the file
+        Path file = Files.createTempFile( "tree", ".bst" );
+        try
+        {
+            big.save( file );
+            OffHeapLongBinarySearchTree reopened = OffHeapLongBinarySearchTree.open( file );
+            for( int i = 0; i < BIG; i++ )
+                if( !reopened.contains( ( i * 0x9E3779B97F4A7C15L ) >>> 1 ) )
+                    System.out.println( "Open error!" );
+            if( reopened.nodeCount( ) != BIG || reopened.findMin( ) != big.findMin( ) || reopened.findMax( ) != big.findMax( ) )
+                System.out.println( "Open error!" );
+
+            for( int i = 0; i < BIG; i += 2 )
+                reopened.remove( ( i * 0x9E3779B97F4A7C15L ) >>> 1 );
+            for( int i = 0; i < 2 * CHUNK_RECORDS; i++ )
+                reopened.insert( ~( ( i * 0x9E3779B97F4A7C15L ) >>> 1 ) );
+            if( reopened.nodeCount( ) != BIG / 2 + 2 * CHUNK_RECORDS || !reopened.contains( -1 ) )
+                System.out.println( "Open update error!" );
+            if( OffHeapLongBinarySearchTree.open( file ).nodeCount( ) != BIG )
+                System.out.println( "Open isolation error!" );
+
+                // A tree still mapped from the file can be saved back over it
+            OffHeapLongBinarySearchTree mapped = OffHeapLongBinarySearchTree.open( file );
+            mapped.save( file );
+            OffHeapLongBinarySearchTree resaved = OffHeapLongBinarySearchTree.open( file );
+            if( resaved.nodeCount( ) != BIG || mapped.nodeCount( ) != BIG )
+                System.out.println( "Save over open error!" );
+            for( int i = 0; i < BIG; i++ )
+                if( !resaved.contains( ( i * 0x9E3779B97F4A7C15L ) >>> 1 ) || !mapped.contains( ( i * 0x9E3779B97F4A7C15L ) >>> 1 ) )
+                    System.out.println( "Save over open error!" );
+
+            r.save( file );
+            OffHeapLongBinarySearchTree small = OffHeapLongBinarySearchTree.open( file );
+            for( long x = -NUMS; x <= NUMS; x++ )
+                if( small.contains( x ) != r.contains( x ) )
+                    System.out.println( "Small open error!" );
+            small.insert( NUMS * 2 );
+            if( !small.contains( NUMS * 2 ) || small.nodeCount( ) != r.nodeCount( ) + 1 )
+                System.out.println( "Small open error!" );
+
+            new OffHeapLongBinarySearchTree( ).save( file );
+            OffHeapLongBinarySearchTree empty = OffHeapLongBinarySearchTree.open( file );
+            empty.insert( 5 );
+            if( empty.nodeCount( ) != 1 || !empty.contains( 5 ) )
+                System.out.println( "Empty open error!" );
+        }
+        finally
+        {
+            Files.delete( file );
+        }
+
+        r.makeEmpty( );
+        if( !r.isEmpty( ) || r.nodeCount( ) != 0 || r.contains( 0 ) )
+            System.out.println( "MakeEmpty error!" );
+    }
+}
@@ -0,0 +1,202 @@
+package bst;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The shape of a binary search tree at one moment, as measured by
+ * BinarySearchTree.shapeStats: how many nodes are on each level, and
+ * what the counts say about how well the tree is balanced.
+ */
+public final class ShapeStats
+{
+    /**
+     * Construct the stats from a level-by-level walk.
+     * @param levelCounts the number of nodes at each depth, root first.
+     * @param full true if no node has exactly one child.
+     * @param complete true if the levels fill from the top and the last fills from the left.
+     * @param degenerate true if no node has two children.
+     */
+    ShapeStats( int [ ] levelCounts, boolean full, boolean complete, boolean degenerate )
+    {
+        this.levelCounts = levelCounts;
+        this.full        = full;
+        this.complete    = complete;
+        this.degenerate  = degenerate;
+
+        int count = 0;
+        long depthSum = 0;
+        for( int depth = 0; depth < levelCounts.length; depth++ )
+        {
+            count    += levelCounts[ depth ];
+            depthSum += (long) depth * levelCounts[ depth ];
+        }
+        nodeCount = count;
+        averageDepth = ( count == 0 ) ? 0 : (double) depthSum / count;
+    }
+
+    /**
+     * Return the number of nodes in the tree.
+     */
+    public int nodeCount( )
+    {
+        return nodeCount;
+    }
+
+    /**
+     * Return the height of the tree; -1 if it is empty.
+     */
+    public int height( )
+    {
+        return levelCounts.length - 1;
+    }
+
+    /**
+     * Return the depth of the deepest node, which is the height;
+     * -1 if the tree is empty.
+     */
+    public int maxDepth( )
+    {
+        return height( );
+    }
+
+    /**
+     * Return the average depth of a node, the root being at depth 0;
+     * 0 if the tree is empty. A successful search compares against
+     * one more node than the depth of its item.
+     */
+    public double averageDepth( )
+    {
+        return averageDepth;
+    }
+
+    /**
+     * Return the number of nodes at a depth.
+     * @param depth the depth, the root being at depth 0.
+     * @return the count; 0 below the deepest level.
+     */
+    public int levelCount( int depth )
+    {
+        return ( depth >= 0 && depth < levelCounts.length ) ? levelCounts[ depth ] : 0;
+    }
+
+    /**
+     * Return the number of nodes at each depth, root first.
+     * @return a new array of height( ) + 1 counts.
+     */
+    public int [ ] levelCounts( )
+    {
+        return levelCounts.clone( );
+    }
+
+    /**
+     * Return how many times taller the tree is than the shortest tree
+     * with as many nodes, counting levels: 1.0 for a complete tree, and
+     * n / ( floor( log2 n ) + 1 ) for a path of n nodes.
+     * An empty tree has a ratio of 1.0.
+     */
+    public double imbalanceRatio( )
+    {
+        if( nodeCount == 0 )
+            return 1.0;
+        int minimumLevels = 32 - Integer.numberOfLeadingZeros( nodeCount );
+        return (double) levelCounts.length / minimumLevels;
+    }
+
+    /**
+     * Return true if every node has zero or two children; as with
+     * BinarySearchTree.isFull, an empty tree counts as full.
+     */
+    public boolean isFull( )
+    {
+        return full;
+    }
+
+    /**
+     * Return true if every level but the last is full and the last is
+     * filled from the left, the shape a binary heap has.
+     */
+    public boolean isComplete( )
+    {
+        return complete;
+    }
+
+    /**
+     * Return true if no node has two children, so the tree is a single
+     * path and searches take linear time. Trees of up to two nodes are
+     * both degenerate and complete.
+     */
+    public boolean isDegenerate( )
+    {
+        return degenerate;
+    }
+
+    @Override
+    public String toString( )
+    {
+        return "nodes=" + nodeCount + " height=" + height( ) + " averageDepth=" + String.format( "%.2f", averageDepth )
+             + " imbalanceRatio=" + String.format( "%.2f", imbalanceRatio( ) ) + " full=" + full + " complete=" + complete
+             + " degenerate=" + degenerate + " levels=" + Arrays.toString( levelCounts );
+    }
+
+    private final int [ ] levelCounts;
+    private final boolean full;
+    private final boolean complete;
+    private final boolean degenerate;
+    private final int nodeCount;
+    private final double averageDepth;
+
+
+        // Test program
+    public static void main( String [ ] args )
+    {
+        final int NUMS = 100;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+        ShapeStats empty = new BinarySearchTree<Integer>( ).shapeStats( );
+        if( empty.nodeCount( ) != 0 || empty.height( ) != -1 || empty.averageDepth( ) != 0 || empty.imbalanceRatio( ) != 1.0
+                || !empty.isFull( ) || !empty.isComplete( ) || !empty.isDegenerate( ) || empty.levelCount( 0 ) != 0 )
+            System.out.println( "Empty shape error! " + empty );
+
+            // Sorted keys make an unbalanced tree a path
+        BinarySearchTree<Integer> path = new BinarySearchTree<>( );
+        for( int i = 0; i < NUMS; i++ )
+            path.insert( i );
+        ShapeStats p = path.shapeStats( );
+        if( p.nodeCount( ) != NUMS || p.height( ) != NUMS - 1 || p.maxDepth( ) != NUMS - 1 || p.levelCount( NUMS - 1 ) != 1
+                || p.averageDepth( ) != ( NUMS - 1 ) / 2.0 || p.imbalanceRatio( ) != NUMS / 7.0
+                || p.isFull( ) || p.isComplete( ) || !p.isDegenerate( ) )
+            System.out.println( "Path shape error! " + p );
+
+            // A perfect tree of 15 nodes, then with its last level filled only from the left, then with a gap
+        BinarySearchTree<Integer> perfect = BinarySearchTree.fromSorted( new Integer[ ] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 },
+                                                                        BinarySearchTree.BalanceMode.NONE );
+        ShapeStats s = perfect.shapeStats( );
+        if( !Arrays.equals( s.levelCounts( ), new int[ ] { 1, 2, 4, 8 } ) || s.imbalanceRatio( ) != 1.0
+                || s.averageDepth( ) != ( 2 + 8 + 24 ) / 15.0 || !s.isFull( ) || !s.isComplete( ) || s.isDegenerate( ) )
+            System.out.println( "Perfect shape error! " + s );
+        perfect.remove( 15 );
+        perfect.remove( 13 );
+        s = perfect.shapeStats( );
+        if( !s.isFull( ) || !s.isComplete( ) || s.levelCount( 3 ) != 6 || s.isFull( ) != perfect.isFull( ) )
+            System.out.println( "Complete shape error! " + s );
+        perfect.remove( 1 );
+        s = perfect.shapeStats( );
+        if( s.isComplete( ) || s.isFull( ) || s.nodeCount( ) != perfect.nodeCount( ) || s.height( ) != perfect.height( ) )
+            System.out.println( "Incomplete shape error! " + s );
+
+            // Random trees agree with isFull, nodeCount and height
+        Random random = new Random( NUMS );
+        for( int trial = 0; trial < NUMS; trial++ )
+        {
+            BinarySearchTree<Integer> t = new BinarySearchTree<>( );
+            for( int i = random.nextInt( 20 ); i > 0; i-- )
+                t.insert( random.nextInt( 30 ) );
+            s = t.shapeStats( );
+            if( s.isFull( ) != t.isFull( ) || s.nodeCount( ) != t.nodeCount( ) || s.height( ) != t.height( )
+                    || s.isDegenerate( ) != ( t.nodeCount( ) == t.height( ) + 1 ) )
+                System.out.println( "Random shape error! " + s );
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package bst;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records, per kind of operation, how many compareTo calls and node
+ * visits each call of a tree took, the rotations it made, and a
+ * histogram of its latency. Attach one to a BinarySearchTree with
+ * setMetrics; a tree with none attached does no counting or timing.
+ * Recording is thread-safe, so another thread, such as a health check,
+ * may take snapshots while the tree is in use.
+ */
+public final class TreeMetrics
+{
+    /**
+     * The operations that are measured.
+     */
+    public enum Operation { INSERT, REMOVE, CONTAINS, FIND_MIN, FIND_MAX }
+
+    /**
+     * Construct an empty recorder.
+     */
+    public TreeMetrics( )
+    {
+        for( Operation op : Operation.values( ) )
+            recorders.put( op, new Recorder( ) );
+    }
+
+    /**
+     * Record one call of an operation.
+     * @param op the operation.
+     * @param compares the number of compareTo calls it made.
+     * @param visits the number of nodes it reached.
+     * @param rotations the number of rotations it made.
+     * @param nanos how long it took.
+     */
+    void record( Operation op, int compares, int visits, int rotations, long nanos )
+    {
+        Recorder r = recorders.get( op );
+        r.count.increment( );
+        r.compares.add( compares );
+        r.visits.add( visits );
+        r.maxVisits.accumulate( visits );
+        r.rotations.add( rotations );
+        r.latency.incrementAndGet( bucket( Math.max( nanos, 0 ) ) );
+    }
+
+    /**
+     * Return the numbers recorded so far. Calls still being recorded
+     * may be partly included.
+     * @return an unchanging copy of the numbers.
+     */
+    public Snapshot snapshot( )
+    {
+        Map<Operation, OperationStats> stats = new EnumMap<>( Operation.class );
+        for( Operation op : Operation.values( ) )
+        {
+            Recorder r = recorders.get( op );
+            long [ ] latency = new long[ BUCKETS ];
+            for( int i = 0; i < BUCKETS; i++ )
+                latency[ i ] = r.latency.get( i );
+            stats.put( op, new OperationStats( r.count.sum( ), r.compares.sum( ), r.visits.sum( ),
+                                               r.maxVisits.get( ), r.rotations.sum( ), latency ) );
+        }
+        return new Snapshot( stats );
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public void reset( )
+    {
+        for( Recorder r : recorders.values( ) )
+        {
+            r.count.reset( );
+            r.compares.reset( );
+            r.visits.reset( );
+            r.maxVisits.reset( );
+            r.rotations.reset( );
+            for( int i = 0; i < BUCKETS; i++ )
+                r.latency.set( i, 0 );
+        }
+    }
+
+    /**
+     * The numbers recorded for every operation at one moment.
+     */
+    public static final class Snapshot
+    {
+        private Snapshot( Map<Operation, OperationStats> stats )
+        {
+            this.stats = stats;
+        }
+
+        /**
+         * Return the numbers recorded for one operation.
+         * @param op the operation.
+         * @return its numbers.
+         */
+        public OperationStats get( Operation op )
+        {
+            return stats.get( op );
+        }
+
+        @Override
+        public String toString( )
+        {
+            StringBuilder sb = new StringBuilder( );
+            for( Map.Entry<Operation, OperationStats> e : stats.entrySet( ) )
+                if( e.getValue( ).count( ) > 0 )
+                    sb.append( e.getKey( ) ).append( ": " ).append( e.getValue( ) ).append( '\n' );
+            return sb.toString( );
+        }
+
+        private final Map<Operation, OperationStats> stats;
+    }
+
+    /**
+     * The numbers recorded for one operation.
+     * Latencies are in nanoseconds and exact to within 1 part in 16.
+     */
+    public static final class OperationStats
+    {
+        private OperationStats( long count, long compares, long visits, long maxVisits, long rotations, long [ ] latency )
+        {
+            this.count     = count;
+            this.compares  = compares;
+            this.visits    = visits;
+            this.maxVisits = maxVisits;
+            this.rotations = rotations;
+            this.latency   = latency;
+        }
+
+          /** Number of calls. */
+        public long count( )          { return count; }
+          /** Total compareTo calls over all calls. */
+        public long compares( )       { return compares; }
+          /** Total nodes reached over all calls. */
+        public long visits( )         { return visits; }
+          /** Most nodes reached by one call, the deepest path taken. */
+        public long maxVisits( )      { return maxVisits; }
+          /** Total rotations over all calls. */
+        public long rotations( )      { return rotations; }
+
+        /**
+         * Return the average nodes reached per call, or 0 if none were made.
+         */
+        public double meanVisits( )
+        {
+            return count == 0 ? 0 : (double) visits / count;
+        }
+
+        /**
+         * Return a latency that the given fraction of calls did not exceed.
+         * @param p the fraction, from 0 to 1; 0.99 gives the 99th percentile.
+         * @return the latency in nanoseconds, or 0 if no calls were made.
+         */
+        public long latencyAtPercentile( double p )
+        {
+            long total = 0;
+            for( long n : latency )
+                total += n;
+            long wanted = Math.max( 1, (long) Math.ceil( p * total ) );
+            long seen = 0;
+            for( int i = 0; i < latency.length; i++ )
+            {
+                seen += latency[ i ];
+                if( seen >= wanted )
+                    return highestInBucket( i );
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString( )
+        {
+            return "count=" + count + " compares=" + compares + " meanVisits=" + String.format( "%.1f", meanVisits( ) )
+                 + " maxVisits=" + maxVisits + " rotations=" + rotations
+                 + " p50=" + latencyAtPercentile( 0.5 ) + "ns p99=" + latencyAtPercentile( 0.99 )
+                 + "ns max=" + latencyAtPercentile( 1 ) + "ns";
+        }
+
+        private final long count;
+        private final long compares;
+        private final long visits;
+        private final long maxVisits;
+        private final long rotations;
+        private final long [ ] latency;
+    }
+
+    /**
+     * Internal method to find the histogram bucket of a latency.
+     * Values below 2^SUB_BITS each have a bucket; above that, each
+     * power of two is split into 2^( SUB_BITS - 1 ) buckets of equal
+     * width, so every bucket is narrow relative to the values in it.
+     * @param v the latency, not negative.
+     * @return the bucket.
+     */
+    static int bucket( long v )
+    {
+        int shift = Math.max( 0, 64 - Long.numberOfLeadingZeros( v ) - SUB_BITS );
+        return ( shift << ( SUB_BITS - 1 ) ) + (int) ( v >>> shift );
+    }
+
+    /**
+     * Internal method to find the largest latency in a bucket.
+     * @param i the bucket.
+     * @return the largest value v with bucket( v ) == i.
+     */
+    static long highestInBucket( int i )
+    {
+        int shift = Math.max( 0, ( i >> ( SUB_BITS - 1 ) ) - 1 );
+        long top = i - ( (long) shift << ( SUB_BITS - 1 ) );
+        return ( ( top + 1 ) << shift ) - 1;
+    }
+
+        // The counters for one operation
+    private static final class Recorder
+    {
+        final LongAdder count = new LongAdder( );
+        final LongAdder compares = new LongAdder( );
+        final LongAdder visits = new LongAdder( );
+        final LongAccumulator maxVisits = new LongAccumulator( Math::max, 0 );
+        final LongAdder rotations = new LongAdder( );
+        final AtomicLongArray latency = new AtomicLongArray( BUCKETS );
+    }
+
+    private static final int SUB_BITS = 5;
+    private static final int BUCKETS = bucket( Long.MAX_VALUE ) + 1;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>( Operation.class );
+
+
+        // Test program
+    public static void main( String [ ] args )
+    {
+        final int NUMS = 100;
+
+        System.out.println( "Checking... (no more output means success)" );
+
+            // Buckets are contiguous, and each value lies in its own
+        for( long v = 0; v < 1 << 16; v++ )
+            if( highestInBucket( bucket( v ) ) < v || ( v > 0 && bucket( v ) - bucket( v - 1 ) > 1 )
+                    || ( v > 0 && bucket( v ) != bucket( v - 1 ) && highestInBucket( bucket( v - 1 ) ) != v - 1 ) )
+                System.out.println( "Bucket error!" );
+        if( highestInBucket( BUCKETS - 1 ) != Long.MAX_VALUE )
+            System.out.println( "Bucket error!" );
+
+            // Sorted keys make an unbalanced tree a path
+        TreeMetrics m = new TreeMetrics( );
+        BinarySearchTree<Integer> t = new BinarySearchTree<>( );
+        t.setMetrics( m );
+        for( int i = 0; i < NUMS; i++ )
+            t.insert( i );
+        t.insert( NUMS - 1 );
+        t.contains( NUMS - 1 );
+        t.contains( NUMS );
+        t.findMin( );
+        t.findMax( );
+
+        Snapshot s = m.snapshot( );
+        OperationStats insert = s.get( Operation.INSERT );
+        if( insert.count( ) != NUMS + 1 || insert.compares( ) != ( NUMS - 1 ) * NUMS / 2 + NUMS
+                || insert.visits( ) != insert.compares( ) || insert.maxVisits( ) != NUMS || insert.rotations( ) != 0 )
+            System.out.println( "Insert metrics error! " + insert );
+        OperationStats contains = s.get( Operation.CONTAINS );
+        if( contains.count( ) != 2 || contains.compares( ) != 2 * NUMS || contains.maxVisits( ) != NUMS )
+            System.out.println( "Contains metrics error! " + contains );
+        if( s.get( Operation.FIND_MIN ).visits( ) != 1 || s.get( Operation.FIND_MAX ).visits( ) != NUMS )
+            System.out.println( "Find metrics error!" );
+        if( s.get( Operation.REMOVE ).count( ) != 0 || insert.latencyAtPercentile( 1 ) < insert.latencyAtPercentile( 0.5 ) )
+            System.out.println( "Snapshot error!" );
+
+            // Removing a node with two children also walks to its successor
+        m.reset( );
+        BinarySearchTree<Integer> u = new BinarySearchTree<>( );
+        for( int x : new int[ ] { 4, 2, 6, 5, 7 } )
+            u.insert( x );
+        u.setMetrics( m );
+        u.remove( 4 );
+        OperationStats remove = m.snapshot( ).get( Operation.REMOVE );
+        if( remove.count( ) != 1 || remove.compares( ) != 1 || remove.visits( ) != 3 )
+            System.out.println( "Remove metrics error! " + remove );
+
+            // AVL inserts report their rotations
+        m.reset( );
+        BinarySearchTree<Integer> a = new BinarySearchTree<>( BinarySearchTree.BalanceMode.AVL );
+        a.setMetrics( m );
+        for( int i = 0; i < NUMS; i++ )
+            a.insert( i );
+        OperationStats avl = m.snapshot( ).get( Operation.INSERT );
+        if( avl.rotations( ) == 0 || avl.maxVisits( ) > a.height( ) + 1 )
+            System.out.println( "Rotation metrics error! " + avl );
+
+        a.setMetrics( null );
+        a.contains( 0 );
+        if( m.snapshot( ).get( Operation.CONTAINS ).count( ) != 0 || a.getMetrics( ) != null )
+            System.out.println( "SetMetrics error!" );
+    }
+}
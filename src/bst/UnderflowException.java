@@ -1,3 +1,5 @@
+package bst;
+
 /**
 * Exception class for access in empty containers
 * such as stacks, queues, and priority queues.